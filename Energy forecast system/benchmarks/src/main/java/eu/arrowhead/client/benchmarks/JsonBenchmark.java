@@ -0,0 +1,94 @@
+package eu.arrowhead.client.benchmarks;
+
+import eu.arrowhead.client.common.can_be_modified.SampleData;
+import eu.arrowhead.client.common.can_be_modified.model.Entry;
+import eu.arrowhead.client.common.can_be_modified.model.Message;
+import eu.arrowhead.client.common.no_need_to_modify.misc.JacksonJsonProviderAtRest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.concurrent.TimeUnit;
+
+/* Serializing and parsing a Message the way Jersey does it on both ends of a provider request, through the
+   JacksonJsonProviderAtRest message body reader and writer. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    // Hourly entries in the Message: a day and a year
+    @Param({"24", "8760"})
+    public int entries;
+
+    private final JacksonJsonProviderAtRest provider = new JacksonJsonProviderAtRest();
+    private Message message;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws IOException {
+        message = new Message();
+        final long start = 1514764800L;
+        for (int i = 0; i < entries; i++) {
+            final long ts = start + i * 3600L;
+            final Entry entry = new Entry();
+            entry.setBuilding(1L);
+            entry.setTimestamp(ts);
+            entry.setOutTemp(SampleData.getOutdoor(ts));
+            entry.setInTemp(SampleData.getIndoor(ts));
+            entry.setTotal(SampleData.getHeatLoss(ts) + SampleData.getWaterHeat(ts));
+            entry.setWater(SampleData.getWaterHeat(ts));
+            message.getEntry().add(entry);
+        }
+        message.setTstart(start);
+        message.setTend(start + (entries - 1) * 3600L);
+        json = write(message);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return write(message);
+    }
+
+    @Benchmark
+    public Message read() throws IOException {
+        return read(json);
+    }
+
+    @Benchmark
+    public Message roundTrip() throws IOException {
+        return read(write(message));
+    }
+
+    private byte[] write(Message value) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        provider.writeTo(value, Message.class, Message.class, NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE,
+                new MultivaluedHashMap<>(), output);
+        return output.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Message read(byte[] bytes) throws IOException {
+        final Class<Object> type = (Class<Object>) (Class<?>) Message.class;
+        return (Message) provider.readFrom(type, Message.class, NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE,
+                new MultivaluedHashMap<>(), new ByteArrayInputStream(bytes));
+    }
+}
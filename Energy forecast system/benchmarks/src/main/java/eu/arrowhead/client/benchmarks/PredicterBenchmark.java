@@ -0,0 +1,138 @@
+package eu.arrowhead.client.benchmarks;
+
+import eu.arrowhead.client.common.can_be_modified.SampleData;
+import eu.arrowhead.client.common.can_be_modified.model.Entry;
+import eu.arrowhead.client.common.no_need_to_modify.log.LogLevel;
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
+import eu.arrowhead.client.provider.Predicter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+  Updating and querying the Predicter on synthetic buildings. The Predicter keeps its files in the working directory
+  (configured by config/app.properties of this module), the buildings used here are reset at the start of every trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PredicterBenchmark {
+    private static final long START = 1514764800L; // 2018-01-01 00:00 UTC
+
+    @State(Scope.Benchmark)
+    public static class UpdateState {
+        // Buildings in one update, and hours of readings sent for each of them
+        @Param({"1", "10"})
+        public int buildings;
+        @Param({"24", "168"})
+        public int hours;
+
+        private long next;
+        private List<Entry> batch;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            reset(1000, buildings);
+            // The first update trains the models from scratch, the measured ones only update them
+            Predicter.update(entries(1000, buildings, START, START + 7 * 24 * 3600L));
+            next = START + 7 * 24 * 3600L;
+        }
+
+        @Setup(Level.Invocation)
+        public void nextBatch() {
+            batch = entries(1000, buildings, next, next + hours * 3600L);
+            next += hours * 3600L;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PredictState {
+        // The model cache holds one building, so cycling through several of them loads a model on every call
+        static final int BUILDINGS = 8;
+
+        private int sequence;
+        private double outTemp;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            reset(2000, BUILDINGS);
+            Predicter.update(entries(2000, BUILDINGS, START, START + 30 * 24 * 3600L));
+        }
+
+        long nextBuilding() {
+            return 2000 + (sequence++ % BUILDINGS);
+        }
+
+        double nextOutTemp() {
+            outTemp = outTemp >= 20 ? -10 : outTemp + 0.5;
+            return outTemp;
+        }
+    }
+
+    @Benchmark
+    public void update(UpdateState state) throws Exception {
+        Predicter.update(state.batch);
+    }
+
+    @Benchmark
+    public float predictTotalUsageCold(PredictState state) throws Exception {
+        return Predicter.predictTotalUsage(state.nextBuilding(), state.nextOutTemp());
+    }
+
+    @Benchmark
+    public float predictTotalUsageWarm(PredictState state) throws Exception {
+        return Predicter.predictTotalUsage(2000, state.nextOutTemp());
+    }
+
+    // Hourly readings of the buildings from "from" (inclusive) to "to" (exclusive), in the order the providers send them
+    private static List<Entry> entries(long firstBuilding, int buildings, long from, long to) {
+        List<Entry> entries = new ArrayList<>();
+        for (int b = 0; b < buildings; b++) {
+            for (long ts = from; ts < to; ts += 3600) {
+                final Entry entry = new Entry();
+                entry.setBuilding(firstBuilding + b);
+                entry.setTimestamp(ts);
+                entry.setOutTemp(SampleData.getOutdoor(ts));
+                entry.setInTemp(SampleData.getIndoor(ts));
+                entry.setWater(SampleData.getWaterHeat(ts));
+                entry.setTotal(SampleData.getHeatLoss(ts) + SampleData.getWaterHeat(ts));
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    // Deletes the history and model files the previous runs left for the buildings
+    private static void reset(long firstBuilding, int buildings) {
+        Logger.setLevel(LogLevel.WARN);
+        for (long building = firstBuilding; building < firstBuilding + buildings; building++) {
+            delete(new File("cache" + building + ".csv"));
+            delete(new File("cache" + building + ".ts"));
+            delete(new File("cache" + building + ".model"));
+        }
+    }
+
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) delete(child);
+        }
+        if (file.exists() && !file.delete()) throw new IllegalStateException("Could not delete " + file);
+    }
+}
@@ -0,0 +1,53 @@
+package eu.arrowhead.client.benchmarks;
+
+import eu.arrowhead.client.common.can_be_modified.SampleData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/* Sample data lookups of the Indoor and Outdoor providers, which run once per hour of every requested range. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SampleDataBenchmark {
+    private static final long START = 1514764800L; // 2018-01-01 00:00 UTC
+    private static final long YEAR = 8760 * 3600L;
+
+    private long timestamp = START;
+    private final SampleData.Hours hours = new SampleData.Hours(START);
+
+    // A different hour on every call, so the lookups are not answered from a single cache line
+    private long nextTimestamp() {
+        timestamp += 3600;
+        if (timestamp >= START + YEAR) timestamp = START;
+        return timestamp;
+    }
+
+    @Benchmark
+    public float getOutdoor() {
+        return SampleData.getOutdoor(nextTimestamp());
+    }
+
+    @Benchmark
+    public float getHeatLoss() {
+        return SampleData.getHeatLoss(nextTimestamp());
+    }
+
+    // The same lookup while walking a range hour by hour, as the providers generate their responses
+    @Benchmark
+    public float walkHeatLoss() {
+        hours.next();
+        return hours.getHeatLoss();
+    }
+}
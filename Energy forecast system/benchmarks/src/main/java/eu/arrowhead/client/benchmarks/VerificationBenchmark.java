@@ -0,0 +1,129 @@
+package eu.arrowhead.client.benchmarks;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import eu.arrowhead.client.common.no_need_to_modify.ArrowheadResource;
+import eu.arrowhead.client.common.no_need_to_modify.misc.JacksonJsonProviderAtRest;
+import eu.arrowhead.client.common.no_need_to_modify.model.RawTokenInfo;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/*
+  Token verification of a secure provider request, with a token and signature created the way the Authorization system
+  does it: the token is encrypted with the public key of the provider and signed with the key of the Authorization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerificationBenchmark {
+    private static final String CONSUMER = "client1";
+
+    // 0 runs the RSA operations for every request
+    @Param({"0", "1000"})
+    public int tokenCacheSize;
+
+    private Resource resource;
+    private SecurityContext context;
+    private String token;
+    private String signature;
+
+    private static final class Resource extends ArrowheadResource {
+        Resource(PublicKey authorizationKey, PrivateKey privateKey, int tokenCacheSize) {
+            super(authorizationKey, privateKey, tokenCacheSize);
+        }
+
+        Response verify(SecurityContext context, String token, String signature) {
+            return verifiedResponse(context, token, signature, "OK");
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        Security.addProvider(new BouncyCastleProvider());
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        final KeyPair authorization = generator.generateKeyPair();
+        final KeyPair provider = generator.generateKeyPair();
+
+        final RawTokenInfo info = new RawTokenInfo();
+        info.setC(CONSUMER + ".testcloud1.aitia.arrowhead.eu");
+        info.setS("HTTP-SECURE-JSON.IndoorTemperature");
+        info.setE(0L);
+        final Cipher cipher = Cipher.getInstance("RSA/NONE/PKCS1Padding", "BC");
+        cipher.init(Cipher.ENCRYPT_MODE, provider.getPublic());
+        final byte[] tokenBytes = cipher.doFinal(JacksonJsonProviderAtRest.getMapper().writer()
+                .without(SerializationFeature.INDENT_OUTPUT).writeValueAsBytes(info));
+
+        final Signature signer = Signature.getInstance("SHA256withRSA", "BC");
+        signer.initSign(authorization.getPrivate());
+        signer.update(tokenBytes);
+
+        token = Base64.getEncoder().encodeToString(tokenBytes);
+        signature = Base64.getEncoder().encodeToString(signer.sign());
+        resource = new Resource(authorization.getPublic(), provider.getPrivate(), tokenCacheSize);
+        context = new ClientCertContext("CN=" + CONSUMER + ".testcloud1.aitia.arrowhead.eu");
+
+        final Response response = resource.verify(context, token, signature);
+        if (response.getStatus() != 200) {
+            throw new IllegalStateException("Token verification failed: " + response.getEntity());
+        }
+    }
+
+    @Benchmark
+    public Response verifiedResponse() {
+        return resource.verify(context, token, signature);
+    }
+
+    // Security context of a request that came with the given client certificate over TLS
+    private static final class ClientCertContext implements SecurityContext {
+        private final String subject;
+
+        ClientCertContext(String subject) {
+            this.subject = subject;
+        }
+
+        @Override
+        public java.security.Principal getUserPrincipal() {
+            return () -> subject;
+        }
+
+        @Override
+        public boolean isUserInRole(String role) {
+            return false;
+        }
+
+        @Override
+        public boolean isSecure() {
+            return true;
+        }
+
+        @Override
+        public String getAuthenticationScheme() {
+            return SecurityContext.CLIENT_CERT_AUTH;
+        }
+    }
+}
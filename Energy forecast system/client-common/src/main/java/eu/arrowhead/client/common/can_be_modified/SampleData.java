@@ -1,11 +1,9 @@
 package eu.arrowhead.client.common.can_be_modified;
 
-import org.joda.time.DateTime;
-import org.joda.time.Days;
-import org.joda.time.Hours;
-
 public class SampleData {
     private static final float IN_TEMP = 22.0f;
+    private static final long SECONDS_PER_DAY = 86400;
+    private static final int FEB_29 = 59; // Day of year, counted from 0
 
     /*
      *  Outdoor temperature data from:
@@ -8786,27 +8784,117 @@ public class SampleData {
     private static final float VENTILATION = 1.2f;
     private static final float SCALE = 2.0f * 1000.0f;
 
-    public static float getOutdoor(long ts) {
-        DateTime dt = new DateTime(ts * 1000);
-        final DateTime ny = new DateTime(dt.getYear(), 1, 1, 0, 0);
-        final DateTime feb29 = new DateTime(dt.getYear(), 2, 28, 0, 0).plusDays(1);
-        int hourOfYear = Hours.hoursBetween(ny, dt).getHours();
-        if (Days.daysBetween(ny, ny.plusYears(1)).getDays() > 365 && (dt.isAfter(feb29) || dt.isEqual(feb29))) {
-            hourOfYear -= 24;
+    // The derived values of every hour of the year, so generating a sample is only a table lookup
+    private static final float[] IN_TEMPS = new float[OUT_TEMP.length];
+    private static final float[] HEAT_LOSS = new float[OUT_TEMP.length];
+    private static final float[] WATER_HEAT = new float[OUT_TEMP.length];
+
+    static {
+        for (int hour = 0; hour < OUT_TEMP.length; hour++) {
+            IN_TEMPS[hour] = Math.max(IN_TEMP, OUT_TEMP[hour]);
+            HEAT_LOSS[hour] = Math.max(0, VENTILATION * (IN_TEMPS[hour] - OUT_TEMP[hour]) * MATERIAL / SCALE);
+            WATER_HEAT[hour] = -0.01f * OUT_TEMP[hour] + 0.3f;
         }
-        return OUT_TEMP[hourOfYear];
+    }
+
+    public static float getOutdoor(long ts) {
+        return OUT_TEMP[hourOfYear(ts)];
     }
 
     public static float getIndoor(long ts) {
-        return Math.max(IN_TEMP, SampleData.getOutdoor(ts));
+        return IN_TEMPS[hourOfYear(ts)];
     }
 
     public static float getHeatLoss(long ts) {
-        return Math.max(0, VENTILATION * (getIndoor(ts) - getOutdoor(ts)) * MATERIAL / SCALE);
+        return HEAT_LOSS[hourOfYear(ts)];
     }
 
     public static float getWaterHeat(long ts) {
-        return -0.01f * getOutdoor(ts) + 0.3f;
+        return WATER_HEAT[hourOfYear(ts)];
+    }
+
+    /**
+     * Walks the values of an hourly range in the yearly tables. The index of the first hour is computed once, the
+     * following hours are the next index, except where the tables restart: at the start of a year, and on 29 February
+     * of leap years, which repeats the hours of 28 February.
+     */
+    public static final class Hours {
+        private long timestamp;
+        private int hour;
+        private long nextRestart;
+
+        public Hours(long timestamp) {
+            seek(timestamp);
+        }
+
+        // Steps to the hour after the current one
+        public void next() {
+            timestamp += 3600;
+            if (timestamp >= nextRestart) {
+                seek(timestamp);
+            } else {
+                hour++;
+            }
+        }
+
+        public float getOutdoor() {
+            return OUT_TEMP[hour];
+        }
+
+        public float getIndoor() {
+            return IN_TEMPS[hour];
+        }
+
+        public float getHeatLoss() {
+            return HEAT_LOSS[hour];
+        }
+
+        public float getWaterHeat() {
+            return WATER_HEAT[hour];
+        }
+
+        private void seek(long ts) {
+            final long day = Math.floorDiv(ts, SECONDS_PER_DAY);
+            final long year = yearOf(day);
+            final long leapDay = firstDayOfYear(year) + FEB_29;
+            timestamp = ts;
+            hour = hourOfYear(ts, day, year);
+            nextRestart = (isLeapYear(year) && day < leapDay ? leapDay : firstDayOfYear(year + 1)) * SECONDS_PER_DAY;
+        }
+    }
+
+    /*
+      Index of the hour of the timestamp (epoch seconds, UTC) in the yearly tables. The data covers a 365 day year, so
+      leap years use the data of 28 February for 29 February as well.
+     */
+    static int hourOfYear(long ts) {
+        final long day = Math.floorDiv(ts, SECONDS_PER_DAY);
+        return hourOfYear(ts, day, yearOf(day));
+    }
+
+    private static int hourOfYear(long ts, long day, long year) {
+        int dayOfYear = (int) (day - firstDayOfYear(year));
+        if (dayOfYear >= FEB_29 && isLeapYear(year)) dayOfYear--;
+        return dayOfYear * 24 + (int) (Math.floorMod(ts, SECONDS_PER_DAY) / 3600);
+    }
+
+    // Year of the day (counted from 1970-01-01)
+    private static long yearOf(long day) {
+        long year = 1970 + Math.floorDiv(day * 400, 146097);
+        while (firstDayOfYear(year + 1) <= day) year++;
+        while (firstDayOfYear(year) > day) year--;
+        return year;
+    }
+
+    // Days from 1970-01-01 to the first day of the year
+    private static long firstDayOfYear(long year) {
+        final long previous = year - 1;
+        final long leapDays = Math.floorDiv(previous, 4) - Math.floorDiv(previous, 100) + Math.floorDiv(previous, 400);
+        return 365 * (year - 1970) + leapDays - 477; // 477 leap days before 1970
+    }
+
+    private static boolean isLeapYear(long year) {
+        return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
     }
 }
 
@@ -0,0 +1,224 @@
+package eu.arrowhead.client.common.can_be_modified.misc;
+
+import eu.arrowhead.client.common.can_be_modified.model.Entry;
+import eu.arrowhead.client.common.can_be_modified.model.Message;
+import eu.arrowhead.client.common.no_need_to_modify.exception.BadPayloadException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary format of Message, for the bulk time series sent between the providers. After a 4 byte header, every
+ * Entry is written as a flags byte telling which fields are present, the timestamp as the zigzag varint of the change
+ * of its delta from the previous entry (a single zero byte for hourly data), the building only when it differs from
+ * the previous entry, and the present readings as 4 byte floats. An END flags byte closes the entries, followed by a
+ * byte telling which of Tstart/Tend are present and their values. The entries are written and read one by one, so
+ * messages of any length can be streamed.
+ */
+public final class BinaryMessageCodec {
+    public static final String MEDIA_TYPE = "application/x-arrowhead-message";
+    // Interface name of the format in the Service Registry entries
+    public static final String INTERFACE = "BINARY";
+
+    private static final byte[] HEADER = {'A', 'H', 'M', 1};
+
+    private static final int OUT_TEMP = 1;
+    private static final int IN_TEMP = 1 << 1;
+    private static final int TOTAL = 1 << 2;
+    private static final int WATER = 1 << 3;
+    private static final int TIMESTAMP = 1 << 4;
+    private static final int BUILDING = 1 << 5;
+    private static final int NO_BUILDING = 1 << 6;
+    private static final int END = 1 << 7;
+
+    private static final int TSTART = 1;
+    private static final int TEND = 1 << 1;
+
+    private BinaryMessageCodec() {
+    }
+
+    public static void write(Message message, OutputStream output) throws IOException {
+        final Encoder encoder = new Encoder(output);
+        for (Entry entry : message.getEntry()) {
+            encoder.writeEntry(entry);
+        }
+        encoder.finish(message.getTstart(), message.getTend());
+    }
+
+    public static Message read(InputStream input) throws IOException {
+        final Decoder decoder = new Decoder(input);
+        for (int i = 0; i < HEADER.length; i++) {
+            if (decoder.readByte() != HEADER[i]) {
+                throw new BadPayloadException("Not a " + MEDIA_TYPE + " payload (or an unsupported version of it)", 400);
+            }
+        }
+
+        final List<Entry> entries = new ArrayList<>();
+        long timestamp = 0;
+        long delta = 0;
+        Long building = null;
+        int flags;
+        while ((flags = decoder.readByte()) != END) {
+            final Entry entry = new Entry();
+            if ((flags & TIMESTAMP) != 0) {
+                delta += decoder.readVarLong();
+                timestamp += delta;
+                entry.setTimestamp(timestamp);
+            }
+            if ((flags & BUILDING) != 0) {
+                building = decoder.readVarLong();
+            }
+            entry.setBuilding((flags & NO_BUILDING) != 0 ? null : building);
+            if ((flags & OUT_TEMP) != 0) entry.setOutTemp(decoder.readFloat());
+            if ((flags & IN_TEMP) != 0) entry.setInTemp(decoder.readFloat());
+            if ((flags & TOTAL) != 0) entry.setTotal(decoder.readFloat());
+            if ((flags & WATER) != 0) entry.setWater(decoder.readFloat());
+            entries.add(entry);
+        }
+
+        final Message message = new Message();
+        message.setEntries(entries);
+        final int range = decoder.readByte();
+        if ((range & TSTART) != 0) message.setTstart(decoder.readVarLong());
+        if ((range & TEND) != 0) message.setTend(decoder.readVarLong());
+        return message;
+    }
+
+    /**
+     * Writes a message entry by entry. The output is buffered, and only flushed to the stream when finish() is called
+     * (or the buffer fills up), the stream itself is not closed.
+     */
+    public static final class Encoder {
+        private final OutputStream output;
+        private final byte[] buffer = new byte[8192];
+        private int length;
+        private long timestamp;
+        private long delta;
+        private Long building;
+
+        public Encoder(OutputStream output) {
+            this.output = output;
+            System.arraycopy(HEADER, 0, buffer, 0, HEADER.length);
+            length = HEADER.length;
+        }
+
+        public void writeEntry(Entry entry) throws IOException {
+            // Flags (1) + timestamp and building (10 each) + readings (4 each)
+            if (length > buffer.length - 37) {
+                flushBuffer();
+            }
+
+            final int flagsAt = length++;
+            int flags = 0;
+            if (entry.getTimestamp() != null) {
+                flags |= TIMESTAMP;
+                final long newDelta = entry.getTimestamp() - timestamp;
+                writeVarLong(newDelta - delta);
+                timestamp = entry.getTimestamp();
+                delta = newDelta;
+            }
+            if (entry.getBuilding() == null) {
+                flags |= NO_BUILDING;
+            } else if (!entry.getBuilding().equals(building)) {
+                flags |= BUILDING;
+                building = entry.getBuilding();
+                writeVarLong(building);
+            }
+            if (entry.getOutTemp() != null) {
+                flags |= OUT_TEMP;
+                writeFloat(entry.getOutTemp());
+            }
+            if (entry.getInTemp() != null) {
+                flags |= IN_TEMP;
+                writeFloat(entry.getInTemp());
+            }
+            if (entry.getTotal() != null) {
+                flags |= TOTAL;
+                writeFloat(entry.getTotal());
+            }
+            if (entry.getWater() != null) {
+                flags |= WATER;
+                writeFloat(entry.getWater());
+            }
+            buffer[flagsAt] = (byte) flags;
+        }
+
+        // Closes the entries and writes the range of the message
+        public void finish(Long tstart, Long tend) throws IOException {
+            if (length > buffer.length - 22) {
+                flushBuffer();
+            }
+            buffer[length++] = (byte) END;
+            buffer[length++] = (byte) ((tstart != null ? TSTART : 0) | (tend != null ? TEND : 0));
+            if (tstart != null) writeVarLong(tstart);
+            if (tend != null) writeVarLong(tend);
+            flushBuffer();
+            output.flush();
+        }
+
+        private void flushBuffer() throws IOException {
+            output.write(buffer, 0, length);
+            length = 0;
+        }
+
+        private void writeVarLong(long value) {
+            // Zigzag encoding, so small negative values are short too
+            long bits = (value << 1) ^ (value >> 63);
+            while ((bits & ~0x7FL) != 0) {
+                buffer[length++] = (byte) ((bits & 0x7F) | 0x80);
+                bits >>>= 7;
+            }
+            buffer[length++] = (byte) bits;
+        }
+
+        private void writeFloat(float value) {
+            final int bits = Float.floatToIntBits(value);
+            buffer[length++] = (byte) (bits >>> 24);
+            buffer[length++] = (byte) (bits >>> 16);
+            buffer[length++] = (byte) (bits >>> 8);
+            buffer[length++] = (byte) bits;
+        }
+    }
+
+    private static final class Decoder {
+        private final InputStream input;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int length;
+
+        Decoder(InputStream input) {
+            this.input = input;
+        }
+
+        int readByte() throws IOException {
+            if (position == length) {
+                length = input.read(buffer, 0, buffer.length);
+                position = 0;
+                if (length <= 0) {
+                    length = 0;
+                    throw new BadPayloadException("Truncated " + MEDIA_TYPE + " payload", 400);
+                }
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        long readVarLong() throws IOException {
+            long bits = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final int b = readByte();
+                bits |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (bits >>> 1) ^ -(bits & 1);
+                }
+            }
+            throw new BadPayloadException("Malformed number in a " + MEDIA_TYPE + " payload", 400);
+        }
+
+        float readFloat() throws IOException {
+            return Float.intBitsToFloat(readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte());
+        }
+    }
+}
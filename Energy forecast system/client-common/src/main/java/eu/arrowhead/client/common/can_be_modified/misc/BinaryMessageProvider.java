@@ -0,0 +1,54 @@
+package eu.arrowhead.client.common.can_be_modified.misc;
+
+import eu.arrowhead.client.common.can_be_modified.model.Message;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Reads and writes Messages in the BinaryMessageCodec format, when it is negotiated instead of JSON (the client accepts
+ * BinaryMessageCodec.MEDIA_TYPE, or sends its payload in it). Registered on the server by the package scan, and on the
+ * client by Utility.
+ */
+@Provider
+@Consumes(BinaryMessageCodec.MEDIA_TYPE)
+@Produces(BinaryMessageCodec.MEDIA_TYPE)
+public class BinaryMessageProvider implements MessageBodyReader<Message>, MessageBodyWriter<Message> {
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == Message.class;
+    }
+
+    @Override
+    public Message readFrom(Class<Message> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                            MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        return BinaryMessageCodec.read(entityStream);
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == Message.class;
+    }
+
+    @Override
+    public long getSize(Message message, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Message message, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        BinaryMessageCodec.write(message, entityStream);
+    }
+}
@@ -0,0 +1,49 @@
+package eu.arrowhead.client.common.can_be_modified.misc;
+
+import eu.arrowhead.client.common.no_need_to_modify.exception.BadPayloadException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor of a paginated range query. A page that does not reach the end of the requested range returns the token of
+ * the next page in the HEADER response header, and the client passes it back in the "continuation" query parameter.
+ * The token holds the end of the original range as well, so every page belongs to the same range, even if it was
+ * open-ended.
+ */
+public final class ContinuationToken {
+    public static final String HEADER = "X-Continuation-Token";
+    public static final String QUERY_PARAM = "continuation";
+
+    private final long next;
+    private final long end;
+
+    public ContinuationToken(long next, long end) {
+        this.next = next;
+        this.end = end;
+    }
+
+    // Timestamp (seconds) the next page starts at
+    public long getNext() {
+        return next;
+    }
+
+    // Exclusive end of the whole range (seconds)
+    public long getEnd() {
+        return end;
+    }
+
+    public static ContinuationToken parse(String token) {
+        try {
+            final String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII).split(":");
+            return new ContinuationToken(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new BadPayloadException("Invalid continuation token: " + token, 400, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((next + ":" + end).getBytes(StandardCharsets.US_ASCII));
+    }
+}
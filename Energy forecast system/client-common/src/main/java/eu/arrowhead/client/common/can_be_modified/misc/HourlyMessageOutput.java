@@ -0,0 +1,112 @@
+package eu.arrowhead.client.common.can_be_modified.misc;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import eu.arrowhead.client.common.can_be_modified.SampleData;
+import eu.arrowhead.client.common.can_be_modified.model.Entry;
+import eu.arrowhead.client.common.no_need_to_modify.misc.JacksonJsonProviderAtRest;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a Message with one Entry per hour of a time range straight to the response stream, in the same (but compact)
+ * JSON format as serializing the Message would give. The entries are written as they are generated, so the memory
+ * used does not depend on the length of the range. With a limit only the first page of the range is written, and
+ * getContinuation() returns the token of the next one. The readings are taken from SampleData, walking its tables from
+ * the first hour of the page. When BinaryMessageCodec.MEDIA_TYPE is negotiated instead of JSON,
+ * HourlyMessageOutputWriter streams the entries with writeBinary().
+ */
+public class HourlyMessageOutput implements StreamingOutput {
+    private static final ObjectWriter ENTRY_WRITER = JacksonJsonProviderAtRest.getMapper().writerFor(Entry.class)
+            .without(SerializationFeature.INDENT_OUTPUT)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    public interface EntryFiller {
+        // Sets the readings of the hour from its SampleData values, the building and timestamp fields are already set
+        void fill(Entry entry, SampleData.Hours hour);
+    }
+
+    private interface EntryWriter {
+        void write(Entry entry) throws IOException;
+    }
+
+    private final long building;
+    private final long firstTimestamp;
+    private final long endTimestamp;
+    private final long pageEndTimestamp;
+    private final EntryFiller filler;
+
+    /**
+     * @param firstTimestamp timestamp of the first entry (seconds), the following ones are an hour apart
+     * @param endTimestamp exclusive end of the range (seconds)
+     */
+    public HourlyMessageOutput(long building, long firstTimestamp, long endTimestamp, EntryFiller filler) {
+        this(building, firstTimestamp, endTimestamp, 0, filler);
+    }
+
+    /**
+     * @param limit maximum number of entries written, 0 (or less) writes the whole range
+     */
+    public HourlyMessageOutput(long building, long firstTimestamp, long endTimestamp, int limit, EntryFiller filler) {
+        this.building = building;
+        this.firstTimestamp = firstTimestamp;
+        this.endTimestamp = endTimestamp;
+        this.pageEndTimestamp = limit > 0 ? Math.min(endTimestamp, firstTimestamp + limit * 3600L) : endTimestamp;
+        this.filler = filler;
+    }
+
+    // Token of the page following this one, or null if this page reaches the end of the range
+    public ContinuationToken getContinuation() {
+        return pageEndTimestamp < endTimestamp ? new ContinuationToken(pageEndTimestamp, endTimestamp) : null;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        try (JsonGenerator generator = ENTRY_WRITER.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            // Same field order as Message: the entries first, so Tend is known by the time it is written
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("entry");
+            final long lastTimestamp = writeEntries(entry -> ENTRY_WRITER.writeValue(generator, entry));
+            generator.writeEndArray();
+            if (lastTimestamp >= 0) {
+                generator.writeNumberField("tstart", firstTimestamp);
+                generator.writeNumberField("tend", lastTimestamp);
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    public void writeBinary(OutputStream output) throws IOException {
+        final BinaryMessageCodec.Encoder encoder = new BinaryMessageCodec.Encoder(output);
+        final long lastTimestamp = writeEntries(encoder::writeEntry);
+        if (lastTimestamp >= 0) {
+            encoder.finish(firstTimestamp, lastTimestamp);
+        } else {
+            encoder.finish(null, null);
+        }
+    }
+
+    // Generates the entries of the page into the writer, and returns the timestamp of the last one (-1 if there was none)
+    private long writeEntries(EntryWriter writer) throws IOException {
+        final Entry entry = new Entry();
+        final SampleData.Hours hour = new SampleData.Hours(firstTimestamp);
+        long lastTimestamp = -1;
+        for (long ts = firstTimestamp; ts < pageEndTimestamp; ts += 3600, hour.next()) {
+            entry.setBuilding(building);
+            entry.setTimestamp(ts);
+            entry.setOutTemp(null);
+            entry.setInTemp(null);
+            entry.setTotal(null);
+            entry.setWater(null);
+            filler.fill(entry, hour);
+            writer.write(entry);
+            lastTimestamp = ts;
+        }
+        return lastTimestamp;
+    }
+}
@@ -0,0 +1,36 @@
+package eu.arrowhead.client.common.can_be_modified.misc;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Streams HourlyMessageOutput entities in the BinaryMessageCodec format, when it is negotiated instead of JSON. Without
+ * this, Jersey would write them with its StreamingOutput writer, which always gives JSON.
+ */
+@Provider
+@Produces(BinaryMessageCodec.MEDIA_TYPE)
+public class HourlyMessageOutputWriter implements MessageBodyWriter<HourlyMessageOutput> {
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return HourlyMessageOutput.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(HourlyMessageOutput output, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(HourlyMessageOutput output, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        output.writeBinary(entityStream);
+    }
+}
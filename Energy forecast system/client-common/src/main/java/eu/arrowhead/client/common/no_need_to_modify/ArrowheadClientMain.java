@@ -11,6 +11,9 @@ package eu.arrowhead.client.common.no_need_to_modify;
 
 import eu.arrowhead.client.common.can_be_modified.misc.ClientType;
 import eu.arrowhead.client.common.no_need_to_modify.exception.AuthException;
+import eu.arrowhead.client.common.no_need_to_modify.log.LogLevel;
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
+import eu.arrowhead.client.common.no_need_to_modify.metrics.RequestMetrics;
 import eu.arrowhead.client.common.no_need_to_modify.misc.SecurityUtils;
 import eu.arrowhead.client.common.no_need_to_modify.misc.TypeSafeProperties;
 import java.io.BufferedReader;
@@ -44,6 +47,8 @@ import org.glassfish.jersey.server.ResourceConfig;
  */
 public abstract class ArrowheadClientMain {
 
+  private static final Logger log = Logger.getLogger(ArrowheadClientMain.class);
+
   protected boolean isSecure;
   protected String baseUri;
   protected String base64PublicKey;
@@ -54,7 +59,7 @@ public abstract class ArrowheadClientMain {
   private ClientType clientType;
 
   protected void init(ClientType client, String[] args, Set<Class<?>> classes, String[] packages) {
-    System.out.println("Working directory: " + System.getProperty("user.dir"));
+    log.info("Working directory: " + System.getProperty("user.dir"));
     clientType = client;
     System.setProperty("client_type", clientType.toString());
 
@@ -62,11 +67,12 @@ public abstract class ArrowheadClientMain {
       switch (arg) {
         case "-daemon":
           daemon = true;
-          System.out.println("Starting server as daemon!");
+          log.info("Starting server as daemon!");
           break;
         case "-d":
           System.setProperty("debug_mode", "true");
-          System.out.println("Starting server in debug mode!");
+          Logger.setLevel(LogLevel.DEBUG);
+          log.info("Starting server in debug mode!");
           break;
         case "-tls":
           isSecure = true;
@@ -92,13 +98,13 @@ public abstract class ArrowheadClientMain {
 
   protected void listenForInput() {
     Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-      System.out.println("Received TERM signal, shutting down...");
+      log.info("Received TERM signal, shutting down...");
       shutdown();
     }));
     if (daemon) {
-      System.out.println("In daemon mode, process will only terminate for TERM signal...");
+      log.info("In daemon mode, process will only terminate for TERM signal...");
     } else {
-      System.out.println("Type \"stop\" to shutdown " + clientType + " Server...");
+      log.info("Type \"stop\" to shutdown " + clientType + " Server...");
       BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
       String input = "";
       try {
@@ -107,7 +113,7 @@ public abstract class ArrowheadClientMain {
         }
         br.close();
       } catch (IOException e) {
-        e.printStackTrace();
+        log.error("Reading the console input failed", e);
       }
       shutdown();
     }
@@ -117,13 +123,14 @@ public abstract class ArrowheadClientMain {
     final ResourceConfig config = new ResourceConfig();
     config.registerClasses(classes);
     config.packages(packages);
+    configureMetrics(config);
 
     URI uri = UriBuilder.fromUri(baseUri).build();
     try {
       server = GrizzlyHttpServerFactory.createHttpServer(uri, config, false);
       server.getServerConfiguration().setAllowPayloadForUndefinedHttpMethods(true);
       server.start();
-      System.out.println("Started insecure server at: " + baseUri);
+      log.info("Started insecure server at: " + baseUri);
     } catch (IOException | ProcessingException e) {
       throw new ServiceConfigurationError(
           "Make sure you gave a valid address in the app.properties file! (Assignable to this JVM and not in use already)", e);
@@ -134,6 +141,7 @@ public abstract class ArrowheadClientMain {
     final ResourceConfig config = new ResourceConfig();
     config.registerClasses(classes);
     config.packages(packages);
+    configureMetrics(config);
 
     String keystorePath = props.getProperty("keystore");
     String keystorePass = props.getProperty("keystorepass");
@@ -157,7 +165,7 @@ public abstract class ArrowheadClientMain {
     KeyStore keyStore = SecurityUtils.loadKeyStore(keystorePath, keystorePass);
     X509Certificate serverCert = SecurityUtils.getFirstCertFromKeyStore(keyStore);
     base64PublicKey = Base64.getEncoder().encodeToString(serverCert.getPublicKey().getEncoded());
-    System.out.println("Server PublicKey Base64: " + base64PublicKey);
+    log.info("Server PublicKey Base64: " + base64PublicKey);
     String serverCN = SecurityUtils.getCertCNFromSubject(serverCert.getSubjectDN().getName());
     if (!SecurityUtils.isKeyStoreCNArrowheadValid(serverCN)) {
       throw new AuthException(
@@ -170,18 +178,27 @@ public abstract class ArrowheadClientMain {
       server = GrizzlyHttpServerFactory.createHttpServer(uri, config, true, new SSLEngineConfigurator(sslCon).setClientMode(false).setNeedClientAuth(true), false);
       server.getServerConfiguration().setAllowPayloadForUndefinedHttpMethods(true);
       server.start();
-      System.out.println("Started secure server at: " + baseUri);
+      log.info("Started secure server at: " + baseUri);
     } catch (IOException | ProcessingException e) {
       throw new ServiceConfigurationError(
           "Make sure you gave a valid address in the app.properties file! (Assignable to this JVM and not in use already)", e);
     }
   }
 
+  //Request metrics (GET /metrics in Prometheus format + JMX beans), if they are enabled in app.properties
+  private void configureMetrics(ResourceConfig config) {
+    if (props.getBooleanProperty("metrics_enabled", false)) {
+      RequestMetrics.register(config);
+      log.info("Request metrics are available at: " + UriBuilder.fromUri(baseUri).path("metrics").toString());
+    }
+  }
+
   protected void shutdown() {
     if (server != null) {
       server.shutdownNow();
     }
-    System.out.println(clientType + " Server stopped");
+    log.info(clientType + " Server stopped");
+    Logger.flush(2000);
     System.exit(0);
   }
 
@@ -1,5 +1,6 @@
 package eu.arrowhead.client.common.no_need_to_modify;
 
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
 import eu.arrowhead.client.common.no_need_to_modify.misc.TypeSafeProperties;
 import eu.arrowhead.client.common.no_need_to_modify.model.ArrowheadService;
 import eu.arrowhead.client.common.no_need_to_modify.model.ArrowheadSystem;
@@ -10,13 +11,15 @@ import javax.net.ssl.SSLContext;
 import java.util.Map;
 
 public abstract class ArrowheadConsumer {
+    private static final Logger log = Logger.getLogger(ArrowheadConsumer.class);
+
     protected final TypeSafeProperties props = Utility.getProp("app.properties");
     private final ArrowheadSystem consumer;
     protected boolean isSecure = false;
 
     public ArrowheadConsumer(String[] args, String systemName) {
         //Prints the working directory for extra information. Working directory should always contain a config folder with the app.properties file!
-        System.out.println("Working directory: " + System.getProperty("user.dir"));
+        log.info("Working directory: " + System.getProperty("user.dir"));
 
         for (String arg : args) {
             if (arg.equals("-tls")) {
@@ -44,7 +47,7 @@ public abstract class ArrowheadConsumer {
 
     protected ServiceRequestForm buildServiceRequestForm(ArrowheadService service, Map<String, Boolean> orchestrationFlags) {
       ServiceRequestForm srf = new ServiceRequestForm.Builder(consumer).requestedService(service).orchestrationFlags(orchestrationFlags).build();
-      System.out.println("Service Request payload: " + Utility.toPrettyJson(null, srf));
+      log.debug(() -> "Service Request payload: " + Utility.toPrettyJson(null, srf));
       return srf;
     }
 }
@@ -3,6 +3,7 @@ package eu.arrowhead.client.common.no_need_to_modify;
 import eu.arrowhead.client.common.can_be_modified.misc.ClientType;
 import eu.arrowhead.client.common.no_need_to_modify.exception.ArrowheadException;
 import eu.arrowhead.client.common.no_need_to_modify.exception.ExceptionType;
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
 import eu.arrowhead.client.common.no_need_to_modify.model.IntraCloudAuthEntry;
 import eu.arrowhead.client.common.no_need_to_modify.model.OrchestrationStore;
 import eu.arrowhead.client.common.no_need_to_modify.model.ServiceRegistryEntry;
@@ -13,6 +14,8 @@ import java.util.HashSet;
 import java.util.List;
 
 public abstract class ArrowheadProvider extends ArrowheadClientMain {
+    private static final Logger log = Logger.getLogger(ArrowheadProvider.class);
+
     private final String srBaseUri;
     private ServiceRegistryEntry srEntry = null;
 
@@ -30,26 +33,26 @@ public abstract class ArrowheadProvider extends ArrowheadClientMain {
         this.srEntry = srEntry;
         String registerUri = UriBuilder.fromPath(srBaseUri).path("register").toString();
         try {
-            Utility.sendRequest(registerUri, "POST", srEntry);
+            Utility.sendRequest(registerUri, "POST", srEntry).close();
         } catch (ArrowheadException e) {
             if (e.getExceptionType() == ExceptionType.DUPLICATE_ENTRY) {
-                System.out.println("Received DuplicateEntryException from SR, " +
+                log.info("Received DuplicateEntryException from SR, " +
                         "sending delete request and then registering again.");
                 unregisterFromServiceRegistry();
-                Utility.sendRequest(registerUri, "POST", srEntry);
+                Utility.sendRequest(registerUri, "POST", srEntry).close();
             } else {
                 throw e;
             }
         }
-        System.out.println("Registering service is successful!");
+        log.info("Registering service is successful!");
     }
 
     protected void unregisterFromServiceRegistry() {
         if (srEntry != null) {
             String removeUri = UriBuilder.fromPath(srBaseUri).path("remove").toString();
-            Utility.sendRequest(removeUri, "PUT", srEntry);
+            Utility.sendRequest(removeUri, "PUT", srEntry).close();
             srEntry = null;
-            System.out.println("Removing service is successful!");
+            log.info("Removing service is successful!");
         }
     }
 
@@ -66,8 +69,8 @@ public abstract class ArrowheadProvider extends ArrowheadClientMain {
                 props.getIntProperty("auth_insecure_port", 8444);
         String authUri = Utility.getUri(authAddress, authPort, "authorization/mgmt/intracloud",
                 isSecure, false);
-        Utility.sendRequest(authUri, "POST", authEntry);
-        System.out.println("Authorization registration is successful!");
+        Utility.sendRequest(authUri, "POST", authEntry).close();
+        log.info("Authorization registration is successful!");
     }
 
     protected void registerToStore(List<OrchestrationStore> storeEntry) {
@@ -75,7 +78,7 @@ public abstract class ArrowheadProvider extends ArrowheadClientMain {
         int orchPort = props.getIntProperty("orch_port", 8440);
         String orchUri = Utility.getUri(orchAddress, orchPort, "orchestrator/mgmt/store",
                 false, false);
-        Utility.sendRequest(orchUri, "POST", storeEntry);
-        System.out.println("Store registration is successful!");
+        Utility.sendRequest(orchUri, "POST", storeEntry).close();
+        log.info("Store registration is successful!");
     }
 }
@@ -0,0 +1,69 @@
+package eu.arrowhead.client.common.no_need_to_modify;
+
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.concurrent.ThreadLocalRandom;
+
+/* Strategies a ProviderPool can use to pick the provider of the next request, selected with the "orch_load_balancing"
+   property. Only providers that are not ejected by the circuit breaker are offered to the strategy. */
+public enum LoadBalancingStrategy {
+    ROUND_ROBIN {
+        @Override
+        ProviderPool.Provider select(List<ProviderPool.Provider> providers, int sequence) {
+            return providers.get(Math.floorMod(sequence, providers.size()));
+        }
+    },
+    LEAST_OUTSTANDING {
+        @Override
+        ProviderPool.Provider select(List<ProviderPool.Provider> providers, int sequence) {
+            //Ties are broken in round robin order, so idle providers share the load
+            ProviderPool.Provider best = null;
+            for (int i = 0; i < providers.size(); i++) {
+                final ProviderPool.Provider provider = providers.get(Math.floorMod(sequence + i, providers.size()));
+                if (best == null || provider.getOutstanding() < best.getOutstanding()) {
+                    best = provider;
+                }
+            }
+            return best;
+        }
+    },
+    LATENCY_WEIGHTED {
+        @Override
+        ProviderPool.Provider select(List<ProviderPool.Provider> providers, int sequence) {
+            //Providers are picked randomly with a weight inversely proportional to their average latency,
+            //ones without measurements get the weight of the fastest known provider, so they are tried as well
+            double fastest = Double.MAX_VALUE;
+            for (ProviderPool.Provider provider : providers) {
+                if (!Double.isNaN(provider.getAverageLatency())) fastest = Math.min(fastest, provider.getAverageLatency());
+            }
+            if (fastest == Double.MAX_VALUE) fastest = 1;
+
+            final double[] weights = new double[providers.size()];
+            double sum = 0;
+            for (int i = 0; i < providers.size(); i++) {
+                final double latency = providers.get(i).getAverageLatency();
+                weights[i] = 1.0 / (1.0 + (Double.isNaN(latency) ? fastest : latency));
+                sum += weights[i];
+            }
+
+            double point = ThreadLocalRandom.current().nextDouble(sum);
+            for (int i = 0; i < weights.length; i++) {
+                point -= weights[i];
+                if (point < 0) return providers.get(i);
+            }
+            return providers.get(providers.size() - 1);
+        }
+    };
+
+    abstract ProviderPool.Provider select(List<ProviderPool.Provider> providers, int sequence);
+
+    public static LoadBalancingStrategy fromProperty(String value) {
+        if (value == null || value.trim().isEmpty()) return ROUND_ROBIN;
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ServiceConfigurationError(
+                    "Unknown orch_load_balancing: " + value + " (valid values: round_robin, least_outstanding, latency_weighted)", e);
+        }
+    }
+}
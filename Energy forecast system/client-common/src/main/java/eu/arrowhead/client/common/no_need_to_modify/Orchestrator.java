@@ -1,39 +1,124 @@
 package eu.arrowhead.client.common.no_need_to_modify;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import eu.arrowhead.client.common.no_need_to_modify.exception.ArrowheadException;
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
+import eu.arrowhead.client.common.no_need_to_modify.misc.JacksonJsonProviderAtRest;
 import eu.arrowhead.client.common.no_need_to_modify.misc.TypeSafeProperties;
 import eu.arrowhead.client.common.no_need_to_modify.model.ArrowheadSystem;
+import eu.arrowhead.client.common.no_need_to_modify.model.OrchestrationForm;
 import eu.arrowhead.client.common.no_need_to_modify.model.OrchestrationResponse;
 import eu.arrowhead.client.common.no_need_to_modify.model.ServiceRequestForm;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Orchestrator {
+    private static final Logger log = Logger.getLogger(Orchestrator.class);
+
+    /*
+      Orchestration results are cached process-wide, keyed on the orchestrator URL and the contents of the service request
+      form, for "orch_cache_ttl" seconds (0 disables the cache). Results containing authorization tokens are kept for at most
+      "orch_cache_token_ttl" seconds, since the token is encrypted for the provider and its expiry can not be read here.
+      Entries are refreshed in the background once 80% of their lifetime passed, and concurrent lookups of the same form
+      share a single request to the Orchestrator.
+     */
+    private static final ConcurrentHashMap<String, CachedResponse> CACHE = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, CompletableFuture<OrchestrationResponse>> IN_FLIGHT = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, PooledResponse> POOLS = new ConcurrentHashMap<>();
+    private static final ExecutorService REFRESHER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "orchestration-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final ObjectWriter KEY_WRITER =
+            JacksonJsonProviderAtRest.getMapper().writer().without(SerializationFeature.INDENT_OUTPUT)
+                    .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
     private final TypeSafeProperties props = Utility.getProp("app.properties");
     private final String orchestratorUrl;
+    private final long cacheTtl;
+    private final long tokenTtl;
+    private final LoadBalancingStrategy strategy;
+
+    private static final class CachedResponse {
+        final OrchestrationResponse response;
+        final long refreshAt;
+        final long expiresAt;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        CachedResponse(OrchestrationResponse response, long ttl) {
+            final long now = System.currentTimeMillis();
+            this.response = response;
+            this.refreshAt = now + ttl * 4 / 5;
+            this.expiresAt = now + ttl;
+        }
+    }
+
+    private static final class PooledResponse {
+        final OrchestrationResponse response;
+        final ProviderPool pool;
+
+        PooledResponse(OrchestrationResponse response, ProviderPool pool) {
+            this.response = response;
+            this.pool = pool;
+        }
+    }
 
     public Orchestrator(boolean isSecure) {
         orchestratorUrl = getOrchestratorUrl(isSecure);
+        cacheTtl = props.getIntProperty("orch_cache_ttl", 60) * 1000L;
+        tokenTtl = props.getIntProperty("orch_cache_token_ttl", 600) * 1000L;
+        strategy = LoadBalancingStrategy.fromProperty(props.getProperty("orch_load_balancing"));
     }
 
     /**
-     * Sends the orchestration request to the Orchestrator, and compiles the URL for the first provider received from
-     * the OrchestrationResponse
+     * Sends the orchestration request to the Orchestrator (or takes it from the cache), and compiles the URL for the
+     * first provider received from the OrchestrationResponse
      */
     public UriBuilder sendOrchestrationRequest(ServiceRequestForm srf) {
-        //Sending a POST request to the orchestrator (URL, method, payload)
-        Response postResponse = Utility.sendRequest(orchestratorUrl, "POST", srf);
-        //Parsing the orchestrator response
-        OrchestrationResponse orchResponse = postResponse.readEntity(OrchestrationResponse.class);
-        System.out.println("Orchestration Response payload: " + Utility.toPrettyJson(null, orchResponse));
-        if (orchResponse.getResponse().isEmpty()) {
-            throw new ArrowheadException("Orchestrator returned with 0 Orchestration Forms!");
-        }
+        final OrchestrationResponse orchResponse = cacheTtl > 0 ? getCachedResponse(srf) : requestOrchestration(srf);
 
         //Getting the first provider from the response
-        ArrowheadSystem provider = orchResponse.getResponse().get(0).getProvider();
-        String serviceURI = orchResponse.getResponse().get(0).getServiceURI();
+        return compileUrl(orchResponse.getResponse().get(0));
+    }
+
+    /**
+     * Sends the orchestration request to the Orchestrator (or takes it from the cache), and keeps every provider of
+     * the OrchestrationResponse in a pool, which spreads the requests over them according to "orch_load_balancing".
+     * The same pool (with its latency and failure statistics) is returned as long as the orchestration result is the same.
+     */
+    public ProviderPool getProviderPool(ServiceRequestForm srf) {
+        final String key = cacheKey(srf);
+        final OrchestrationResponse orchResponse = cacheTtl > 0 ? getCachedResponse(srf) : requestOrchestration(srf);
+        return POOLS.compute(key, (k, pooled) -> {
+            if (pooled != null && pooled.response == orchResponse) {
+                return pooled;
+            }
+            List<UriBuilder> urls = new ArrayList<>();
+            for (OrchestrationForm form : orchResponse.getResponse()) {
+                urls.add(compileUrl(form));
+            }
+            ProviderPool pool = new ProviderPool(urls, strategy, props.getIntProperty("orch_lb_failure_threshold", 3),
+                    props.getIntProperty("orch_lb_ejection_time", 30) * 1000L, pooled == null ? null : pooled.pool);
+            return new PooledResponse(orchResponse, pool);
+        }).pool;
+    }
+
+    //Compiles the URL for a provider of the OrchestrationResponse
+    private UriBuilder compileUrl(OrchestrationForm form) {
+        ArrowheadSystem provider = form.getProvider();
+        String serviceURI = form.getServiceURI();
         //Compiling the URL for the provider
         UriBuilder ub = UriBuilder.fromPath("").host(provider.getAddress()).scheme("http");
         if (serviceURI != null) {
@@ -42,15 +127,100 @@ public class Orchestrator {
         if (provider.getPort() > 0) {
             ub.port(provider.getPort());
         }
-        if (orchResponse.getResponse().get(0).getService().getServiceMetadata().containsKey("security")) {
+        if (form.getService().getServiceMetadata().containsKey("security")) {
             ub.scheme("https");
-            ub.queryParam("token", orchResponse.getResponse().get(0).getAuthorizationToken());
-            ub.queryParam("signature", orchResponse.getResponse().get(0).getSignature());
+            ub.queryParam("token", form.getAuthorizationToken());
+            ub.queryParam("signature", form.getSignature());
         }
-        System.out.println("Received provider system URL: " + ub.toString());
+        log.info("Received provider system URL: " + ub.toString());
         return ub;
     }
 
+    /**
+     * Drops the cached orchestration result of the given form, e.g. after the provider rejected its token as expired.
+     */
+    public void invalidate(ServiceRequestForm srf) {
+        final String key = cacheKey(srf);
+        CACHE.remove(key);
+        POOLS.remove(key);
+    }
+
+    private OrchestrationResponse getCachedResponse(ServiceRequestForm srf) {
+        final String key = cacheKey(srf);
+        final CachedResponse cached = CACHE.get(key);
+        final long now = System.currentTimeMillis();
+        if (cached == null || now >= cached.expiresAt) {
+            return fetch(key, srf);
+        }
+
+        if (now >= cached.refreshAt && cached.refreshing.compareAndSet(false, true)) {
+            REFRESHER.execute(() -> {
+                try {
+                    fetch(key, srf);
+                } catch (RuntimeException e) {
+                    //The next caller retries the refresh, instead of waiting for the entry to expire
+                    cached.refreshing.set(false);
+                    log.warn("Background orchestration refresh failed: " + e.getMessage());
+                }
+            });
+        }
+        return cached.response;
+    }
+
+    //Only one request is sent to the Orchestrator for the same form at a time, the other callers wait for its result
+    private OrchestrationResponse fetch(String key, ServiceRequestForm srf) {
+        final CompletableFuture<OrchestrationResponse> created = new CompletableFuture<>();
+        final CompletableFuture<OrchestrationResponse> existing = IN_FLIGHT.putIfAbsent(key, created);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            final OrchestrationResponse orchResponse = requestOrchestration(srf);
+            CACHE.put(key, new CachedResponse(orchResponse, ttlOf(orchResponse)));
+            created.complete(orchResponse);
+            return orchResponse;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            IN_FLIGHT.remove(key, created);
+        }
+    }
+
+    private OrchestrationResponse requestOrchestration(ServiceRequestForm srf) {
+        //Sending a POST request to the orchestrator (URL, method, payload)
+        Response postResponse = Utility.sendRequest(orchestratorUrl, "POST", srf);
+        //Parsing the orchestrator response
+        OrchestrationResponse orchResponse = postResponse.readEntity(OrchestrationResponse.class);
+        log.debug(() -> "Orchestration Response payload: " + Utility.toPrettyJson(null, orchResponse));
+        if (orchResponse.getResponse().isEmpty()) {
+            throw new ArrowheadException("Orchestrator returned with 0 Orchestration Forms!");
+        }
+        return orchResponse;
+    }
+
+    private long ttlOf(OrchestrationResponse orchResponse) {
+        for (OrchestrationForm form : orchResponse.getResponse()) {
+            if (form.getAuthorizationToken() != null && tokenTtl > 0) {
+                return Math.min(cacheTtl, tokenTtl);
+            }
+        }
+        return cacheTtl;
+    }
+
+    private String cacheKey(ServiceRequestForm srf) {
+        try {
+            return orchestratorUrl + "|" + KEY_WRITER.writeValueAsString(srf);
+        } catch (JsonProcessingException e) {
+            throw new ArrowheadException("Could not serialize the service request form: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Gets the correct URL where the orchestration requests needs to be sent (from app.properties config file +
      * command line argument)
@@ -0,0 +1,202 @@
+package eu.arrowhead.client.common.no_need_to_modify;
+
+import eu.arrowhead.client.common.no_need_to_modify.exception.ArrowheadException;
+import eu.arrowhead.client.common.no_need_to_modify.exception.UnavailableServerException;
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.UriBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Every provider returned by the Orchestrator for a service request. Requests are spread over them with a
+ * LoadBalancingStrategy, and a provider that fails "failureThreshold" times in a row (connection errors or 5xx
+ * responses) is ejected for "ejectionTime" milliseconds, during which the requests fail over to the others.
+ */
+public class ProviderPool {
+    private static final Logger log = Logger.getLogger(ProviderPool.class);
+
+    private final List<Provider> providers;
+    private final LoadBalancingStrategy strategy;
+    private final int failureThreshold;
+    private final long ejectionTime;
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    public interface Request<T> {
+        T send(UriBuilder providerUrl);
+    }
+
+    public interface AsyncRequest<T> {
+        CompletableFuture<T> send(UriBuilder providerUrl);
+    }
+
+    public static final class Provider {
+        private static final double LATENCY_SMOOTHING = 0.2;
+
+        private final UriBuilder url;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile double averageLatency = Double.NaN;
+        private volatile long ejectedUntil;
+
+        Provider(UriBuilder url) {
+            this.url = url;
+        }
+
+        public UriBuilder getUrl() {
+            return url.clone();
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        //Exponentially weighted moving average of the successful requests, in milliseconds
+        public double getAverageLatency() {
+            return averageLatency;
+        }
+
+        public boolean isEjected() {
+            return ejectedUntil > System.currentTimeMillis();
+        }
+
+        private void copyStatistics(Provider other) {
+            averageLatency = other.averageLatency;
+            consecutiveFailures.set(other.consecutiveFailures.get());
+            ejectedUntil = other.ejectedUntil;
+        }
+
+        private synchronized void recordSuccess(long latency) {
+            averageLatency = Double.isNaN(averageLatency) ? latency : averageLatency + LATENCY_SMOOTHING * (latency - averageLatency);
+            consecutiveFailures.set(0);
+            ejectedUntil = 0;
+        }
+
+        private void recordFailure(int failureThreshold, long ejectionTime) {
+            if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                ejectedUntil = System.currentTimeMillis() + ejectionTime;
+                log.warn("Provider ejected for " + ejectionTime + " ms: " + url.toString());
+            }
+        }
+    }
+
+    ProviderPool(List<UriBuilder> urls, LoadBalancingStrategy strategy, int failureThreshold, long ejectionTime, ProviderPool previous) {
+        List<Provider> list = new ArrayList<>(urls.size());
+        for (UriBuilder url : urls) {
+            Provider provider = new Provider(url);
+            //Keep the statistics of the providers that were already known
+            if (previous != null) {
+                for (Provider old : previous.providers) {
+                    if (old.url.toString().equals(url.toString())) provider.copyStatistics(old);
+                }
+            }
+            list.add(provider);
+        }
+        this.providers = Collections.unmodifiableList(list);
+        this.strategy = strategy;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.ejectionTime = ejectionTime;
+    }
+
+    public List<Provider> getProviders() {
+        return providers;
+    }
+
+    /**
+     * Sends the request to a provider chosen by the strategy. If it can not be reached (or answers with a server
+     * error), the request is retried on the other providers before the last error is thrown.
+     */
+    public <T> T call(Request<T> request) {
+        List<Provider> candidates = new ArrayList<>(providers);
+        RuntimeException lastError = null;
+        while (!candidates.isEmpty()) {
+            final Provider provider = select(candidates);
+            candidates.remove(provider);
+
+            provider.outstanding.incrementAndGet();
+            final long start = System.currentTimeMillis();
+            try {
+                final T result = request.send(provider.getUrl());
+                provider.recordSuccess(System.currentTimeMillis() - start);
+                return result;
+            } catch (RuntimeException e) {
+                if (!isProviderFailure(e)) throw e;
+                provider.recordFailure(failureThreshold, ejectionTime);
+                lastError = e;
+            } finally {
+                provider.outstanding.decrementAndGet();
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * Asynchronous version of call: the next provider is only tried once the request to the previous one failed, without
+     * blocking the calling thread.
+     */
+    public <T> CompletableFuture<T> callAsync(AsyncRequest<T> request) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        callAsync(request, new ArrayList<>(providers), null, result);
+        return result;
+    }
+
+    private <T> void callAsync(AsyncRequest<T> request, List<Provider> candidates, Throwable lastError, CompletableFuture<T> result) {
+        if (candidates.isEmpty()) {
+            result.completeExceptionally(lastError);
+            return;
+        }
+        final Provider provider = select(candidates);
+        candidates.remove(provider);
+
+        provider.outstanding.incrementAndGet();
+        final long start = System.currentTimeMillis();
+        CompletableFuture<T> attempt;
+        try {
+            attempt = request.send(provider.getUrl());
+        } catch (RuntimeException e) {
+            attempt = new CompletableFuture<>();
+            attempt.completeExceptionally(e);
+        }
+        attempt.whenComplete((value, error) -> {
+            provider.outstanding.decrementAndGet();
+            if (error == null) {
+                provider.recordSuccess(System.currentTimeMillis() - start);
+                result.complete(value);
+                return;
+            }
+            final Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (!(cause instanceof RuntimeException) || !isProviderFailure((RuntimeException) cause)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            provider.recordFailure(failureThreshold, ejectionTime);
+            callAsync(request, candidates, cause, result);
+        });
+    }
+
+    private Provider select(List<Provider> candidates) {
+        List<Provider> available = new ArrayList<>(candidates.size());
+        for (Provider provider : candidates) {
+            if (!provider.isEjected()) available.add(provider);
+        }
+        if (available.isEmpty()) {
+            //Every remaining provider is ejected, try the one that comes back first rather than failing outright
+            Provider soonest = candidates.get(0);
+            for (Provider provider : candidates) {
+                if (provider.ejectedUntil < soonest.ejectedUntil) soonest = provider;
+            }
+            return soonest;
+        }
+        return strategy.select(available, sequence.getAndIncrement());
+    }
+
+    private static boolean isProviderFailure(RuntimeException e) {
+        if (e instanceof UnavailableServerException || e instanceof ProcessingException) return true;
+        return e instanceof ArrowheadException && ((ArrowheadException) e).getErrorCode() >= 500;
+    }
+}
@@ -0,0 +1,191 @@
+package eu.arrowhead.client.common.no_need_to_modify;
+
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
+import eu.arrowhead.client.common.no_need_to_modify.misc.SecurityUtils;
+import eu.arrowhead.client.common.no_need_to_modify.misc.TypeSafeProperties;
+import eu.arrowhead.client.common.no_need_to_modify.model.RawTokenInfo;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+import javax.crypto.Cipher;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+  Verifies the authorization tokens of the secure requests. Jersey creates a new resource object for every request, so
+  the keys are loaded once per process (from the keystores in app.properties), and every thread keeps its own initialized
+  Signature and Cipher. A token that passed the verification is remembered, together with its signature and the common
+  name of the consumer, until it expires ("token_cache_size" tokens at most, 0 disables the cache), so the consumers
+  reusing their orchestration results skip the RSA operations. When the cache is full, the least recently used token
+  is dropped, and an expired token is dropped as soon as it becomes the least recently used one.
+ */
+final class TokenVerifier {
+    private static final Logger log = Logger.getLogger(TokenVerifier.class);
+
+    private static volatile TokenVerifier configured;
+
+    static {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    private final PublicKey authorizationKey;
+    private final PrivateKey privateKey;
+    private final int cacheSize;
+    private final ThreadLocal<Signature> signatures = new ThreadLocal<>();
+    private final ThreadLocal<Cipher> ciphers = new ThreadLocal<>();
+    private final Map<String, Long> verified; // Key -> expiry (ms), access ordered
+    private final Map<String, String> commonNames; // Subject -> CN, access ordered
+
+    enum Result {
+        VALID, INVALID_SIGNATURE, EXPIRED, PERMISSION_DENIED
+    }
+
+    TokenVerifier(PublicKey authorizationKey, PrivateKey privateKey, int cacheSize) {
+        this.authorizationKey = authorizationKey;
+        this.privateKey = privateKey;
+        this.cacheSize = cacheSize;
+        this.verified = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > cacheSize || eldest.getValue() <= System.currentTimeMillis();
+            }
+        };
+        this.commonNames = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    // The verifier using the keys of app.properties, loaded on first use
+    static TokenVerifier configured() {
+        TokenVerifier verifier = configured;
+        if (verifier == null) {
+            synchronized (TokenVerifier.class) {
+                if (configured == null) configured = fromConfig(Utility.getProp("app.properties"));
+                verifier = configured;
+            }
+        }
+        return verifier;
+    }
+
+    private static TokenVerifier fromConfig(TypeSafeProperties props) {
+        //Load the Provider private key
+        String keystorePath = props.getProperty("keystore");
+        String keystorePass = props.getProperty("keystorepass");
+        KeyStore keyStore = SecurityUtils.loadKeyStore(keystorePath, keystorePass);
+        PrivateKey privateKey = SecurityUtils.getPrivateKey(keyStore, keystorePass);
+
+        //Load the Authorization Core System public key
+        String authCertPath = props.getProperty("authorization_cert");
+        KeyStore authKeyStore = SecurityUtils.createKeyStoreFromCert(authCertPath);
+        X509Certificate authCert = SecurityUtils.getFirstCertFromKeyStore(authKeyStore);
+        PublicKey authorizationKey = authCert.getPublicKey();
+        log.info("Authorization CN: " + SecurityUtils.getCertCNFromSubject(authCert.getSubjectDN().getName()));
+        log.info("Authorization System PublicKey Base64: " + Base64.getEncoder().encodeToString(authorizationKey.getEncoded()));
+
+        return new TokenVerifier(authorizationKey, privateKey, props.getIntProperty("token_cache_size", 1000));
+    }
+
+    /**
+     * Checks that the token was created by the Authorization Core System for this provider, it did not expire yet, and
+     * it was issued to the consumer with the given certificate subject.
+     */
+    Result verify(String subject, String token, String signature) throws GeneralSecurityException {
+        String consumerName = commonName(subject).split("\\.")[0];
+        if (token.contains(" ")) {
+            token = token.replaceAll("\\s", "+");
+        }
+        if (signature.contains(" ")) {
+            signature = signature.replaceAll("\\s", "+");
+        }
+
+        final String key = consumerName + "|" + token + "|" + signature;
+        if (isVerified(key)) return Result.VALID;
+
+        byte[] tokenbytes = Base64.getDecoder().decode(token);
+        byte[] signaturebytes = Base64.getDecoder().decode(signature);
+        if (!verifySignature(tokenbytes, signaturebytes)) {
+            return Result.INVALID_SIGNATURE;
+        }
+
+        String json = new String(decrypt(tokenbytes), StandardCharsets.UTF_8);
+        RawTokenInfo rawTokenInfo = Utility.fromJson(json, RawTokenInfo.class);
+        String consumerTokenName = rawTokenInfo.getC().split("\\.")[0];
+        if (!consumerName.equals(consumerTokenName)) {
+            return Result.PERMISSION_DENIED;
+        }
+
+        long endTime = rawTokenInfo.getE();
+        if (endTime != 0L && endTime <= System.currentTimeMillis()) {
+            return Result.EXPIRED;
+        }
+        if (cacheSize > 0) {
+            synchronized (verified) {
+                verified.put(key, endTime == 0L ? Long.MAX_VALUE : endTime);
+            }
+        }
+        return Result.VALID;
+    }
+
+    private boolean isVerified(String key) {
+        if (cacheSize <= 0) return false;
+        synchronized (verified) {
+            final Long expiry = verified.get(key);
+            if (expiry == null) return false;
+            if (expiry > System.currentTimeMillis()) return true;
+            verified.remove(key);
+            return false;
+        }
+    }
+
+    private String commonName(String subject) {
+        if (cacheSize <= 0) return SecurityUtils.getCertCNFromSubject(subject);
+        synchronized (commonNames) {
+            return commonNames.computeIfAbsent(subject, SecurityUtils::getCertCNFromSubject);
+        }
+    }
+
+    private boolean verifySignature(byte[] data, byte[] signatureBytes) throws GeneralSecurityException {
+        Signature signatureInstance = signatures.get();
+        if (signatureInstance == null) {
+            signatureInstance = Signature.getInstance("SHA256withRSA", "BC");
+            signatureInstance.initVerify(authorizationKey);
+            signatures.set(signatureInstance);
+        }
+        try {
+            // verify() resets the object to the state after initVerify, so it can be reused
+            signatureInstance.update(data);
+            return signatureInstance.verify(signatureBytes);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            // The state is undefined after a failure, the next request initializes a new instance
+            signatures.remove();
+            throw e;
+        }
+    }
+
+    private byte[] decrypt(byte[] data) throws GeneralSecurityException {
+        Cipher cipher = ciphers.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance("RSA/NONE/PKCS1Padding", "BC");
+            cipher.init(Cipher.DECRYPT_MODE, privateKey);
+            ciphers.set(cipher);
+        }
+        try {
+            // doFinal() resets the cipher to the state after init, so it can be reused
+            return cipher.doFinal(data);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            ciphers.remove();
+            throw e;
+        }
+    }
+}
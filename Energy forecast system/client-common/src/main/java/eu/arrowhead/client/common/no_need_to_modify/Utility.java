@@ -10,6 +10,8 @@
 package eu.arrowhead.client.common.no_need_to_modify;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.arrowhead.client.common.can_be_modified.misc.BinaryMessageCodec;
+import eu.arrowhead.client.common.can_be_modified.misc.BinaryMessageProvider;
 import eu.arrowhead.client.common.no_need_to_modify.exception.ArrowheadException;
 import eu.arrowhead.client.common.no_need_to_modify.exception.AuthException;
 import eu.arrowhead.client.common.no_need_to_modify.exception.BadPayloadException;
@@ -17,7 +19,11 @@ import eu.arrowhead.client.common.no_need_to_modify.exception.DataNotFoundExcept
 import eu.arrowhead.client.common.no_need_to_modify.exception.DnsException;
 import eu.arrowhead.client.common.no_need_to_modify.exception.DuplicateEntryException;
 import eu.arrowhead.client.common.no_need_to_modify.exception.ErrorMessage;
+import eu.arrowhead.client.common.no_need_to_modify.exception.ExceptionType;
 import eu.arrowhead.client.common.no_need_to_modify.exception.UnavailableServerException;
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
+import eu.arrowhead.client.common.no_need_to_modify.metrics.CallMetrics;
+import eu.arrowhead.client.common.no_need_to_modify.metrics.CallMetricsRegistry;
 import eu.arrowhead.client.common.no_need_to_modify.misc.JacksonJsonProviderAtRest;
 import eu.arrowhead.client.common.no_need_to_modify.misc.TypeSafeProperties;
 import java.io.BufferedReader;
@@ -34,24 +40,74 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.ServiceConfigurationError;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import javax.ws.rs.NotAllowedException;
 import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.AsyncInvoker;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.Response.Status.Family;
 import javax.ws.rs.core.UriBuilder;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
 import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.RequestEntityProcessing;
 
 //Contains static utility methods for the project, most important one is the sendRequest method!
 public final class Utility {
 
+  private static final Logger log = Logger.getLogger(Utility.class);
+
+  /*
+    The clients send their requests through a pooled Apache HttpClient connector, so connections (and their TLS sessions)
+    are kept alive and reused between the requests instead of being set up for every call. The pool is configured with the
+    http_* properties of app.properties, and http_pooled_connector=false switches back to the default Jersey connector.
+    One client is kept per SSLContext.
+   */
+  private static final TypeSafeProperties connectionProps = getConnectionProps();
+  private static final List<PoolingHttpClientConnectionManager> connectionManagers = new CopyOnWriteArrayList<>();
+  private static final ConcurrentHashMap<SSLContext, Client> sslClients = new ConcurrentHashMap<>();
+  private static final ScheduledExecutorService connectionReaper = createConnectionReaper();
+
+  /*
+    Every request sent by sendRequest and sendRequestAsync is reported to the call metrics registry (CallMetrics by default,
+    http_call_metrics=false disables it), with the time spent opening a new pooled connection, which the connection manager
+    adds up for the thread sending the request. Requests slower than http_slow_call_threshold milliseconds are also logged.
+   */
+  private static final ThreadLocal<long[]> connectNanos = ThreadLocal.withInitial(() -> new long[1]);
+  private static final long slowCallThreshold = TimeUnit.MILLISECONDS.toNanos(connectionProps.getIntProperty("http_slow_call_threshold", 0));
+  private static volatile CallMetricsRegistry callMetrics = createCallMetrics();
+
+  /*
+    The requests accept Messages in the compact BinaryMessageCodec format ahead of JSON, so the providers supporting it send
+    their time series in it (the others keep sending JSON). http_binary_messages=false leaves the Accept header unset.
+   */
+  private static final String[] acceptedTypes = connectionProps.getBooleanProperty("http_binary_messages", true) ? new String[]{
+      BinaryMessageCodec.MEDIA_TYPE, MediaType.APPLICATION_JSON + ";q=0.9", MediaType.WILDCARD + ";q=0.8"} : new String[0];
+
   private static Client client = createClient(null);
   private static Client sslClient;
 
@@ -70,6 +126,17 @@ public final class Utility {
     ClientConfig configuration = new ClientConfig();
     configuration.property(ClientProperties.CONNECT_TIMEOUT, 30000);
     configuration.property(ClientProperties.READ_TIMEOUT, 30000);
+    //Threads running the asynchronous requests, Jersey uses an unbounded pool by default
+    int asyncThreads = connectionProps.getIntProperty("http_async_threads", 0);
+    if (asyncThreads > 0) {
+      configuration.property(ClientProperties.ASYNC_THREADPOOL_SIZE, asyncThreads);
+    }
+    if (connectionProps.getBooleanProperty("http_pooled_connector", true)) {
+      configuration.connectorProvider(new ApacheConnectorProvider());
+      configuration.property(ApacheClientProperties.CONNECTION_MANAGER, createConnectionManager(context));
+      //Send a Content-Length instead of chunking the (small) JSON payloads, like the default connector does
+      configuration.property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.BUFFERED);
+    }
 
     Client client;
     if (context != null) {
@@ -78,72 +145,306 @@ public final class Utility {
       client = ClientBuilder.newClient(configuration);
     }
     client.register(JacksonJsonProviderAtRest.class);
+    client.register(BinaryMessageProvider.class);
     return client;
   }
 
+  private static PoolingHttpClientConnectionManager createConnectionManager(SSLContext context) {
+    RegistryBuilder<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+        .register("http", PlainConnectionSocketFactory.getSocketFactory());
+    if (context != null) {
+      //Resumed TLS sessions skip the expensive part of the handshake when a new connection has to be opened
+      context.getClientSessionContext().setSessionTimeout(connectionProps.getIntProperty("http_tls_session_timeout", 86400));
+      registry.register("https", new SSLConnectionSocketFactory(context, allHostsValid));
+    }
+
+    PoolingHttpClientConnectionManager manager = new SharedStateConnectionManager(registry.build(),
+                                                                                  connectionProps.getIntProperty("http_keep_alive", 300));
+    manager.setMaxTotal(connectionProps.getIntProperty("http_max_connections", 200));
+    manager.setDefaultMaxPerRoute(connectionProps.getIntProperty("http_max_connections_per_route", 20));
+    //Connections idle for more than 2 seconds are checked before reuse, since the server might have closed them already
+    manager.setValidateAfterInactivity(2000);
+    connectionManagers.add(manager);
+    return manager;
+  }
+
+  /*
+    HttpClient marks connections authenticated with a client certificate with the certificate principal, and only
+    reuses them for requests carrying the same state, which Jersey never sets. Every connection of a pool belongs to the
+    same SSLContext (so the same identity), therefore the state is dropped and these connections are reused as well.
+   */
+  private static final class SharedStateConnectionManager extends PoolingHttpClientConnectionManager {
+
+    SharedStateConnectionManager(Registry<ConnectionSocketFactory> registry, long timeToLive) {
+      super(registry, null, null, null, timeToLive, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection managedConn, Object state, long keepalive, TimeUnit tunit) {
+      super.releaseConnection(managedConn, null, keepalive, tunit);
+    }
+
+    //Only called for new connections, the TLS handshake of https connections also happens here
+    @Override
+    public void connect(HttpClientConnection managedConn, HttpRoute route, int connectTimeout, HttpContext context) throws IOException {
+      long start = System.nanoTime();
+      try {
+        super.connect(managedConn, route, connectTimeout, context);
+      } finally {
+        connectNanos.get()[0] += System.nanoTime() - start;
+      }
+    }
+  }
+
+  //Closes the expired and idle pooled connections in the background
+  private static ScheduledExecutorService createConnectionReaper() {
+    final int idleTimeout = connectionProps.getIntProperty("http_idle_timeout", 30);
+    ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "http-connection-reaper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    final long period = Math.max(1, idleTimeout / 2);
+    reaper.scheduleWithFixedDelay(() -> {
+      for (PoolingHttpClientConnectionManager manager : connectionManagers) {
+        manager.closeExpiredConnections();
+        manager.closeIdleConnections(idleTimeout, TimeUnit.SECONDS);
+      }
+    }, period, period, TimeUnit.SECONDS);
+    return reaper;
+  }
+
+  //The connection settings are optional, so the defaults are used when there is no app.properties (e.g. in tools)
+  private static TypeSafeProperties getConnectionProps() {
+    if (new File("config" + File.separator + "app.properties").isFile()) {
+      return getProp("app.properties");
+    }
+    return new TypeSafeProperties();
+  }
+
+  private static CallMetricsRegistry createCallMetrics() {
+    if (!connectionProps.getBooleanProperty("http_call_metrics", true)) {
+      return null;
+    }
+    String className = connectionProps.getProperty("http_call_metrics_registry", "").trim();
+    if (className.isEmpty()) {
+      return CallMetrics.getInstance();
+    }
+    try {
+      return Class.forName(className).asSubclass(CallMetricsRegistry.class).newInstance();
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      throw new ServiceConfigurationError(
+          "http_call_metrics_registry has to be the name of a CallMetricsRegistry class with a public no-argument constructor!", e);
+    }
+  }
+
+  //Replaces the registry the requests are reported to (null stops the reporting)
+  public static void setCallMetricsRegistry(CallMetricsRegistry registry) {
+    callMetrics = registry;
+  }
+
+  public static CallMetricsRegistry getCallMetricsRegistry() {
+    return callMetrics;
+  }
+
+  private static Client getSSLClient(SSLContext context) {
+    return sslClients.computeIfAbsent(context, Utility::createClient);
+  }
+
   public static void setSSLContext(SSLContext context) {
-    sslClient = createClient(context);
+    sslClient = getSSLClient(context);
   }
 
   //Sends a HTTP request to the given url, with the given HTTP method type and given payload
   public static <T> Response sendRequest(String uri, String method, T payload, SSLContext givenContext) {
-    boolean isSecure = false;
-    if (uri == null) {
-      throw new NullPointerException("send (HTTP) request method received null URL");
-    }
-    if (uri.startsWith("https")) {
-      isSecure = true;
-    }
+    Builder request = prepareRequest(uri, givenContext);
+    connectNanos.get()[0] = 0;
+    long start = System.nanoTime();
+    RuntimeException error = null;
+    try {
+      Response response; // will not be null after the switch-case
+      try {
+        switch (method) {
+          case "GET":
+            response = request.get();
+            break;
+          case "POST":
+            response = request.post(Entity.json(payload));
+            break;
+          case "PUT":
+            response = request.put(Entity.json(payload));
+            break;
+          case "DELETE":
+            response = request.delete();
+            break;
+          default:
+            throw new NotAllowedException("Invalid method type was given to the Utility.sendRequest() method");
+        }
+      } catch (ProcessingException e) {
+        throw new UnavailableServerException("Could not get any response from: " + uri, Status.SERVICE_UNAVAILABLE.getStatusCode(), e);
+      }
 
-    if (isSecure && sslClient == null) {
-      throw new AuthException(
-          "SSL Context is not set, but secure request sending was invoked. An insecure module can not send requests to secure modules.",
-          Status.UNAUTHORIZED.getStatusCode());
+      checkResponse(response, uri);
+      return response;
+    } catch (RuntimeException e) {
+      error = e;
+      throw e;
+    } finally {
+      callFinished(uri, method, start, error);
     }
-    Client usedClient = isSecure ? givenContext != null ? createClient(givenContext) : sslClient : client;
+  }
+
+  public static <T> Response sendRequest(String uri, String method, T payload) {
+    return sendRequest(uri, method, payload, null);
+  }
+
+  /**
+   * Asynchronous version of sendRequest: the request is sent on a Jersey client thread and the returned future completes
+   * with the response, or exceptionally with the same exceptions sendRequest would throw. The calling thread is never
+   * blocked, so requests to several providers can be sent concurrently and their results composed.
+   */
+  public static <T> CompletableFuture<Response> sendRequestAsync(String uri, String method, T payload, SSLContext givenContext) {
+    CompletableFuture<Response> future = new CompletableFuture<>();
+    //The callbacks run on the thread which sent the request, so its connect time is reported with the request
+    long start = System.nanoTime();
+    InvocationCallback<Response> callback = new InvocationCallback<Response>() {
+      @Override
+      public void completed(Response response) {
+        try {
+          checkResponse(response, uri);
+          callFinished(uri, method, start, null);
+          future.complete(response);
+        } catch (RuntimeException e) {
+          callFinished(uri, method, start, e);
+          future.completeExceptionally(e);
+        }
+      }
+
+      @Override
+      public void failed(Throwable throwable) {
+        Throwable error = throwable;
+        if (throwable instanceof ProcessingException) {
+          error = new UnavailableServerException("Could not get any response from: " + uri, Status.SERVICE_UNAVAILABLE.getStatusCode(), throwable);
+        }
+        callFinished(uri, method, start, error);
+        future.completeExceptionally(error);
+      }
+    };
 
-    Builder request = usedClient.target(UriBuilder.fromUri(uri).build()).request().header("Content-type", "application/json");
-    Response response; // will not be null after the switch-case
     try {
+      AsyncInvoker request = prepareRequest(uri, givenContext).async();
       switch (method) {
         case "GET":
-          response = request.get();
+          request.get(callback);
           break;
         case "POST":
-          response = request.post(Entity.json(payload));
+          request.post(Entity.json(payload), callback);
           break;
         case "PUT":
-          response = request.put(Entity.json(payload));
+          request.put(Entity.json(payload), callback);
           break;
         case "DELETE":
-          response = request.delete();
+          request.delete(callback);
           break;
         default:
-          throw new NotAllowedException("Invalid method type was given to the Utility.sendRequest() method");
+          throw new NotAllowedException("Invalid method type was given to the Utility.sendRequestAsync() method");
       }
-    } catch (ProcessingException e) {
-      throw new UnavailableServerException("Could not get any response from: " + uri, Status.SERVICE_UNAVAILABLE.getStatusCode(), e);
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
     }
+    return future;
+  }
 
-    // If the response status code does not start with 2 the request was not successful
-    if (!(response.getStatusInfo().getFamily() == Family.SUCCESSFUL)) {
-      handleException(response, uri);
+  //Reports a finished request to the call metrics registry, and logs it if it was slow
+  private static void callFinished(String uri, String method, long start, Throwable error) {
+    long totalNanos = System.nanoTime() - start;
+    long[] connect = connectNanos.get();
+    long connectTime = Math.min(connect[0], totalNanos);
+    connect[0] = 0;
+
+    CallMetricsRegistry registry = callMetrics;
+    boolean slow = slowCallThreshold > 0 && totalNanos >= slowCallThreshold;
+    if (registry == null && !slow) {
+      return;
+    }
+    ExceptionType errorType = null;
+    if (error instanceof ArrowheadException) {
+      errorType = ((ArrowheadException) error).getExceptionType();
+    } else if (error != null) {
+      errorType = ExceptionType.GENERIC;
     }
 
-    return response;
+    if (registry != null) {
+      try {
+        registry.callFinished(targetOf(uri), method, connectTime, totalNanos, errorType);
+      } catch (RuntimeException e) {
+        //Failing metrics should not fail the request
+        log.warn("Call metrics registry failed: " + e.toString());
+      }
+    }
+    if (slow) {
+      log.warn("Slow request: " + method + " " + withoutQuery(uri) + " took " + TimeUnit.NANOSECONDS.toMillis(totalNanos) + " ms (connect: "
+                   + TimeUnit.NANOSECONDS.toMillis(connectTime) + " ms)" + (errorType != null ? ", failed with " + errorType : ""));
+    }
   }
 
-  public static <T> Response sendRequest(String uri, String method, T payload) {
-    return sendRequest(uri, method, payload, null);
+  //The host:port of the URL, which the calls are grouped by
+  private static String targetOf(String uri) {
+    try {
+      URI parsed = new URI(uri);
+      String host = parsed.getHost() != null ? parsed.getHost() : parsed.getAuthority();
+      return parsed.getPort() == -1 ? host : host + ":" + parsed.getPort();
+    } catch (URISyntaxException e) {
+      return withoutQuery(uri);
+    }
   }
 
-  private static void handleException(Response response, String uri) {
-    //The response body has to be extracted before the stream closes
-    String errorMessageBody = toPrettyJson(null, response.getEntity());
-    if (errorMessageBody == null || errorMessageBody.equals("null")) {
-      response.bufferEntity();
-      errorMessageBody = response.readEntity(String.class);
+  //The URL without its query string, which carries the token and signature of the requester in secure mode
+  private static String withoutQuery(String uri) {
+    int query = uri.indexOf('?');
+    return query == -1 ? uri : uri.substring(0, query);
+  }
+
+  public static <T> CompletableFuture<Response> sendRequestAsync(String uri, String method, T payload) {
+    return sendRequestAsync(uri, method, payload, null);
+  }
+
+  private static Builder prepareRequest(String uri, SSLContext givenContext) {
+    boolean isSecure = false;
+    if (uri == null) {
+      throw new NullPointerException("send (HTTP) request method received null URL");
+    }
+    if (uri.startsWith("https")) {
+      isSecure = true;
+    }
+
+    if (isSecure && sslClient == null) {
+      throw new AuthException(
+          "SSL Context is not set, but secure request sending was invoked. An insecure module can not send requests to secure modules.",
+          Status.UNAUTHORIZED.getStatusCode());
+    }
+    Client usedClient = isSecure ? givenContext != null ? getSSLClient(givenContext) : sslClient : client;
+
+    return usedClient.target(UriBuilder.fromUri(uri).build()).request(acceptedTypes).header("Content-type", "application/json");
+  }
+
+  private static void checkResponse(Response response, String uri) {
+    // If the response status code does not start with 2 the request was not successful
+    if (!(response.getStatusInfo().getFamily() == Family.SUCCESSFUL)) {
+      try {
+        handleException(response, uri);
+      } catch (RuntimeException e) {
+        //Give the connection back to the pool
+        response.close();
+        throw e;
+      }
     }
+  }
+
+  private static void handleException(Response response, String uri) {
+    //The response body has to be extracted before the stream closes, buffering it allows reading it again below
+    response.bufferEntity();
+    String errorMessageBody = response.readEntity(String.class);
 
     ErrorMessage errorMessage;
     try {
@@ -152,11 +453,11 @@ public final class Utility {
       throw new ArrowheadException("Unknown error occurred at " + uri, e);
     }
     if (errorMessage == null || errorMessage.getExceptionType() == null) {
-      System.out.println("Request failed, response status code: " + response.getStatus());
-      System.out.println("Request failed, response body: " + errorMessageBody);
+      log.warn("Request failed, response status code: " + response.getStatus());
+      log.warn("Request failed, response body: " + errorMessageBody);
       throw new ArrowheadException("Unknown error occurred at " + uri);
     } else {
-      System.out.println(Utility.toPrettyJson(null, errorMessage));
+      log.warn(() -> "Request failed: " + Utility.toPrettyJson(null, errorMessage));
       switch (errorMessage.getExceptionType()) {
         case ARROWHEAD:
           throw new ArrowheadException(errorMessage.getErrorMessage(), errorMessage.getErrorCode());
@@ -308,7 +609,7 @@ public final class Utility {
     } catch (FileNotFoundException ex) {
       throw new ServiceConfigurationError(fileName + " file not found, make sure you have the correct working directory set! (directory where the config folder can be found)", ex);
     } catch (Exception ex) {
-      ex.printStackTrace();
+      log.error("Loading " + fileName + " failed", ex);
     }
     return prop;
   }
@@ -326,26 +627,40 @@ public final class Utility {
   }
 
   public static <T> T requestEntity(String method, String providerUrl, Object payload, Class<T> aClass) {
-    Response response = sendRequestThrow(method, providerUrl, payload);
+    return readEntity(sendRequestThrow(method, providerUrl, payload), aClass);
+  }
+
+  public static <T> CompletableFuture<T> requestEntityAsync(String method, String providerUrl, Object payload, Class<T> aClass) {
+    return sendRequestThrowAsync(method, providerUrl, payload).thenApply(response -> readEntity(response, aClass));
+  }
 
+  private static <T> T readEntity(Response response, Class<T> aClass) {
     T obj;
     try {
       obj = response.readEntity(aClass);
     } catch (RuntimeException e) {
-      System.out.println("Provider did not send response in a parsable format.");
-      e.printStackTrace();
+      log.error("Provider did not send response in a parsable format.", e);
+      response.close();
       throw e;
     }
     return obj;
   }
 
   public static Response sendRequestThrow(String method, String providerUrl, Object payload) {
-    Response response = sendRequest(providerUrl, method, payload);
+    return requireSuccess(sendRequest(providerUrl, method, payload));
+  }
+
+  public static CompletableFuture<Response> sendRequestThrowAsync(String method, String providerUrl, Object payload) {
+    return sendRequestAsync(providerUrl, method, payload).thenApply(Utility::requireSuccess);
+  }
+
+  private static Response requireSuccess(Response response) {
     final Response.StatusType statusInfo = response.getStatusInfo();
     if (statusInfo.getFamily() != Family.SUCCESSFUL) {
       final int statusCode = statusInfo.getStatusCode();
-        final String reasonPhrase = statusInfo.getReasonPhrase();
-        System.out.println("GOT " + statusCode + " " + reasonPhrase);
+      final String reasonPhrase = statusInfo.getReasonPhrase();
+      log.warn("GOT " + statusCode + " " + reasonPhrase);
+      response.close();
       throw new ArrowheadException(reasonPhrase, statusCode);
     }
     return response;
@@ -9,6 +9,7 @@
 
 package eu.arrowhead.client.common.no_need_to_modify.exception;
 
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
 import javax.inject.Inject;
 import javax.ws.rs.NotAllowedException;
 import javax.ws.rs.core.Response;
@@ -20,11 +21,13 @@ import org.glassfish.jersey.server.ContainerRequest;
 @Provider
 public class BadMethodExceptionMapper implements ExceptionMapper<NotAllowedException> {
 
+  private static final Logger log = Logger.getLogger(BadMethodExceptionMapper.class);
+
   @Inject
   private javax.inject.Provider<ContainerRequest> requestContext;
 
   public Response toResponse(NotAllowedException ex) {
-    ex.printStackTrace();
+    log.warn("Request with a not allowed method", ex);
     ErrorMessage errorMessage;
     if (ex.getMessage() != null) {
       errorMessage = new ErrorMessage(ex.getMessage(), 405, ExceptionType.BAD_METHOD, requestContext.get().getBaseUri().toString());
@@ -10,6 +10,7 @@
 package eu.arrowhead.client.common.no_need_to_modify.exception;
 
 import com.fasterxml.jackson.core.JsonParseException;
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
 import javax.annotation.Priority;
 import javax.inject.Inject;
 import javax.ws.rs.core.Response;
@@ -23,6 +24,8 @@ import org.glassfish.jersey.server.ContainerResponse;
 @Priority(1) //This is needed in order to give this Mapper higher priority over Jackson's own implementation
 public class JsonParseExceptionMapper implements ExceptionMapper<JsonParseException> {
 
+  private static final Logger log = Logger.getLogger(JsonParseExceptionMapper.class);
+
   @Inject
   private javax.inject.Provider<ContainerRequest> requestContext;
   @Inject
@@ -30,7 +33,7 @@ public class JsonParseExceptionMapper implements ExceptionMapper<JsonParseExcept
 
   @Override
   public Response toResponse(JsonParseException ex) {
-    ex.printStackTrace();
+    log.warn("Request with an unparsable JSON payload", ex);
     int errorCode = 404; //Bad Request
     String origin = requestContext.get() != null ? requestContext.get().getAbsolutePath().toString() : "unknown";
     if (responseContext.get() != null && responseContext.get().getStatusInfo().getFamily() != Family.OTHER) {
@@ -10,28 +10,71 @@
 package eu.arrowhead.client.common.no_need_to_modify.filter;
 
 import eu.arrowhead.client.common.no_need_to_modify.Utility;
+import eu.arrowhead.client.common.no_need_to_modify.filter.DebugCapture.Slot;
+import eu.arrowhead.client.common.no_need_to_modify.filter.DebugCapture.TeeInputStream;
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import javax.annotation.Priority;
 import javax.ws.rs.Priorities;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
 import javax.ws.rs.ext.Provider;
 
+/*
+  Logs the incoming requests in debug mode (-d). By default the payload is read, pretty printed as JSON and given to the
+  resource as a new stream. With debug_capture_mode=tee the payload is captured while the resource reads it and logged by a
+  background thread instead (see DebugCapture), which is cheap enough to keep the debug mode on under load.
+ */
 @Provider
 @Priority(Priorities.USER)
-public class InboundDebugFilter implements ContainerRequestFilter {
+public class InboundDebugFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+  private static final Logger log = Logger.getLogger(InboundDebugFilter.class);
+
+  private static final String CAPTURE_PROPERTY = InboundDebugFilter.class.getName() + ".capture";
 
   @Override
   public void filter(ContainerRequestContext requestContext) throws IOException {
     if (Boolean.valueOf(System.getProperty("debug_mode", "false"))) {
-      System.out.println("New " + requestContext.getMethod() + " request at: " + requestContext.getUriInfo().getRequestUri().toString());
+      DebugCapture capture = DebugCapture.getInstance();
+      if (capture != null) {
+        capture(requestContext, capture);
+        return;
+      }
+
       String prettyJson = Utility.getRequestPayload(requestContext.getEntityStream());
-      System.out.println(prettyJson);
+      log.debug("New " + requestContext.getMethod() + " request at: " + requestContext.getUriInfo().getRequestUri().toString() + "\n" + prettyJson);
 
-      InputStream in = new ByteArrayInputStream(prettyJson.getBytes("UTF-8"));
+      InputStream in = new ByteArrayInputStream(prettyJson.getBytes(StandardCharsets.UTF_8));
       requestContext.setEntityStream(in);
     }
   }
+
+  //Finishes the captures of the payloads the resource did not read to the end
+  @Override
+  public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+    Object tee = requestContext.getProperty(CAPTURE_PROPERTY);
+    if (tee != null) {
+      ((TeeInputStream) tee).finish();
+    }
+  }
+
+  private void capture(ContainerRequestContext requestContext, DebugCapture capture) {
+    Slot slot = capture.start(requestContext);
+    if (slot == null) {
+      return;
+    }
+    if (requestContext.hasEntity()) {
+      TeeInputStream tee = new TeeInputStream(requestContext.getEntityStream(), capture, slot);
+      requestContext.setEntityStream(tee);
+      requestContext.setProperty(CAPTURE_PROPERTY, tee);
+    } else {
+      capture.finish(slot);
+    }
+  }
 }
@@ -10,6 +10,7 @@
 package eu.arrowhead.client.common.no_need_to_modify.filter;
 
 import eu.arrowhead.client.common.no_need_to_modify.Utility;
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
 import javax.annotation.Priority;
 import javax.ws.rs.Priorities;
 import javax.ws.rs.container.ContainerRequestContext;
@@ -21,12 +22,14 @@ import javax.ws.rs.ext.Provider;
 @Priority(Priorities.USER)
 public class OutboundDebugFilter implements ContainerResponseFilter {
 
+  private static final Logger log = Logger.getLogger(OutboundDebugFilter.class);
+
   @Override
   public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
     if (Boolean.valueOf(System.getProperty("debug_mode", "false"))) {
       if (responseContext.getEntity() != null) {
-        System.out.println("Response to the request at: " + requestContext.getUriInfo().getRequestUri().toString());
-        System.out.println(Utility.toPrettyJson(null, responseContext.getEntity()));
+        log.debug(() -> "Response to the request at: " + requestContext.getUriInfo().getRequestUri().toString() + "\n"
+            + Utility.toPrettyJson(null, responseContext.getEntity()));
       }
     }
   }
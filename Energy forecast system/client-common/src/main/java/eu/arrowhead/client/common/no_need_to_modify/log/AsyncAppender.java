@@ -0,0 +1,157 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.no_need_to_modify.log;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+  Writes the log messages to the console from a background thread. The logging threads put their messages into a ring
+  buffer of preallocated entries: a slot is claimed with a CAS on the claim counter and published by writing its sequence
+  number, so they never lock or wait for the console. The writer thread prints the entries in sequence order and frees them.
+  When the buffer is full (the console can not keep up), messages are dropped and counted instead of blocking the callers.
+ */
+final class AsyncAppender {
+
+  private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+  private final Entry[] entries;
+  private final int mask;
+  private final PrintStream out;
+  //Next sequence to claim, and the next one the writer prints (every entry below it is free)
+  private final AtomicLong claimed = new AtomicLong();
+  private volatile long written;
+  private final AtomicLong dropped = new AtomicLong();
+  private volatile long reportedDrops;
+  private volatile boolean writerWaiting;
+  private final Thread writer;
+
+  AsyncAppender(int capacity, PrintStream out) {
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    entries = new Entry[size];
+    for (int i = 0; i < size; i++) {
+      entries[i] = new Entry(i - size);
+    }
+    mask = size - 1;
+    this.out = out;
+    writer = new Thread(this::writeEntries, "log-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  //Returns false if the message was dropped, because the buffer was full
+  boolean append(LogLevel level, String logger, String message, Throwable error) {
+    long sequence;
+    do {
+      sequence = claimed.get();
+      if (sequence - written >= entries.length) {
+        dropped.incrementAndGet();
+        return false;
+      }
+    } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+    Entry entry = entries[(int) sequence & mask];
+    entry.time = System.currentTimeMillis();
+    entry.level = level;
+    entry.thread = Thread.currentThread().getName();
+    entry.logger = logger;
+    entry.message = message;
+    entry.error = error;
+    entry.sequence = sequence;
+    if (writerWaiting) {
+      LockSupport.unpark(writer);
+    }
+    return true;
+  }
+
+  //Waits until the messages logged so far (and the drops) are printed, or the timeout passes, used when the JVM shuts down
+  void flush(long timeoutMillis) {
+    long target = claimed.get();
+    long drops = dropped.get();
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    while ((written < target || reportedDrops < drops) && System.nanoTime() < deadline) {
+      LockSupport.unpark(writer);
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    out.flush();
+  }
+
+  private void writeEntries() {
+    StringBuilder sb = new StringBuilder(256);
+    while (true) {
+      long next = written;
+      Entry entry = entries[(int) next & mask];
+      if (entry.sequence != next) {
+        reportDrops();
+        out.flush();
+        //Checking again after announcing the wait, so an entry published meanwhile either is seen here or unparks the writer
+        writerWaiting = true;
+        if (entry.sequence != next) {
+          LockSupport.park(this);
+        }
+        writerWaiting = false;
+        continue;
+      }
+
+      sb.setLength(0);
+      format(sb, entry);
+      entry.message = null;
+      entry.error = null;
+      written = next + 1;
+      out.print(sb);
+      reportDrops();
+    }
+  }
+
+  private void reportDrops() {
+    long drops = dropped.get();
+    if (drops > reportedDrops) {
+      out.println(drops - reportedDrops + " log message(s) were dropped, because the log buffer was full.");
+      reportedDrops = drops;
+    }
+  }
+
+  private static void format(StringBuilder sb, Entry entry) {
+    TIMESTAMP.formatTo(Instant.ofEpochMilli(entry.time), sb);
+    sb.append(' ').append(entry.level);
+    for (int i = entry.level.name().length(); i < 5; i++) {
+      sb.append(' ');
+    }
+    sb.append(" [").append(entry.thread).append("] ").append(entry.logger).append(": ").append(entry.message).append(System.lineSeparator());
+    if (entry.error != null) {
+      StringWriter trace = new StringWriter();
+      entry.error.printStackTrace(new PrintWriter(trace));
+      sb.append(trace);
+    }
+  }
+
+  private static final class Entry {
+
+    //Sequence number of the message in this entry, written last, so the other fields are visible once it is set
+    private volatile long sequence;
+    private long time;
+    private LogLevel level;
+    private String thread;
+    private String logger;
+    private String message;
+    private Throwable error;
+
+    private Entry(long sequence) {
+      this.sequence = sequence;
+    }
+  }
+}
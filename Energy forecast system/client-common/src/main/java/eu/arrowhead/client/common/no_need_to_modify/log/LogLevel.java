@@ -0,0 +1,28 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.no_need_to_modify.log;
+
+import java.util.ServiceConfigurationError;
+
+//Levels of the log messages, in increasing severity. Setting the level to OFF disables the logging.
+public enum LogLevel {
+  DEBUG, INFO, WARN, ERROR, OFF;
+
+  public static LogLevel fromProperty(String value) {
+    if (value == null || value.trim().isEmpty()) {
+      return INFO;
+    }
+    try {
+      return valueOf(value.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new ServiceConfigurationError("Unknown log_level: " + value + " (valid values: debug, info, warn, error, off)", e);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.no_need_to_modify.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* Thread-safe latency histogram with HDR-style log-linear buckets (in microseconds): values below 32 µs have their own
+   buckets, above that every power of two range is split into 16 buckets, so the percentiles are within ~6% of the real
+   values from microseconds up to days, using a fixed array of 608 counters. Recording is a few atomic increments, it does
+   not allocate or lock. */
+public final class LatencyHistogram {
+
+  private static final int LINEAR_BITS = 5;
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int MAX_EXPONENT = 40;
+  private static final int BUCKETS = (1 << LINEAR_BITS) + (MAX_EXPONENT - LINEAR_BITS + 1) * (1 << SUB_BUCKET_BITS);
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sumMicros = new AtomicLong();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  public void record(long nanos) {
+    long micros = Math.max(0, nanos / 1000);
+    counts.incrementAndGet(bucketOf(micros));
+    count.incrementAndGet();
+    sumMicros.addAndGet(micros);
+    long max = maxMicros.get();
+    while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+      max = maxMicros.get();
+    }
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getSumMicros() {
+    return sumMicros.get();
+  }
+
+  public long getMaxMicros() {
+    return maxMicros.get();
+  }
+
+  public double getMeanMicros() {
+    long n = count.get();
+    return n == 0 ? 0 : (double) sumMicros.get() / n;
+  }
+
+  //The value below which the given fraction (0-1) of the recorded values are, in microseconds (0 if nothing was recorded)
+  public long getPercentileMicros(double fraction) {
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      total += counts.get(i);
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(fraction * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        //The middle of the bucket, but never more than the largest value recorded
+        return Math.min((lowerBound(i) + upperBound(i)) / 2, maxMicros.get());
+      }
+    }
+    return maxMicros.get();
+  }
+
+  static int bucketOf(long micros) {
+    if (micros < (1 << LINEAR_BITS)) {
+      return (int) micros;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKETS - 1;
+    }
+    int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+    return (1 << LINEAR_BITS) + ((exponent - LINEAR_BITS) << SUB_BUCKET_BITS) + subBucket;
+  }
+
+  static long lowerBound(int bucket) {
+    if (bucket < (1 << LINEAR_BITS)) {
+      return bucket;
+    }
+    int offset = bucket - (1 << LINEAR_BITS);
+    int exponent = (offset >> SUB_BUCKET_BITS) + LINEAR_BITS;
+    long subBucket = offset & ((1 << SUB_BUCKET_BITS) - 1);
+    return (1L << exponent) + (subBucket << (exponent - SUB_BUCKET_BITS));
+  }
+
+  static long upperBound(int bucket) {
+    if (bucket < (1 << LINEAR_BITS)) {
+      return bucket + 1;
+    }
+    int exponent = ((bucket - (1 << LINEAR_BITS)) >> SUB_BUCKET_BITS) + LINEAR_BITS;
+    return lowerBound(bucket) + (1L << (exponent - SUB_BUCKET_BITS));
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.no_need_to_modify.metrics;
+
+import javax.annotation.Priority;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.server.model.ResourceMethod;
+
+/*
+  Measures the latency, in-flight count and response status of every request matched to a resource method. It has the
+  highest priority, so the time spent in the other filters (e.g. the SecurityFilter) is included too. Not annotated with
+  @Provider on purpose, so the package scanning does not pick it up: it is only registered when the metrics are enabled
+  (see RequestMetrics.register).
+ */
+@Priority(1)
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+  private static final String START = MetricsFilter.class.getName() + ".start";
+  private static final String ENDPOINT = MetricsFilter.class.getName() + ".endpoint";
+
+  @Override
+  public void filter(ContainerRequestContext requestContext) {
+    ResourceMethod method = ((ExtendedUriInfo) requestContext.getUriInfo()).getMatchedResourceMethod();
+    if (method != null) {
+      requestContext.setProperty(ENDPOINT, RequestMetrics.getInstance().requestStarted(method));
+      requestContext.setProperty(START, System.nanoTime());
+    }
+  }
+
+  @Override
+  public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+    EndpointMetrics metrics = (EndpointMetrics) requestContext.getProperty(ENDPOINT);
+    Long start = (Long) requestContext.getProperty(START);
+    if (metrics != null && start != null) {
+      RequestMetrics.getInstance().requestFinished(metrics, System.nanoTime() - start, responseContext.getStatus());
+    } else {
+      RequestMetrics.getInstance().unmatchedResponse(responseContext.getStatus());
+    }
+  }
+}
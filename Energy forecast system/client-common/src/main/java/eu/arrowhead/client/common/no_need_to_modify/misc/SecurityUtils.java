@@ -9,6 +9,7 @@
 
 package eu.arrowhead.client.common.no_need_to_modify.misc;
 
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -40,6 +41,8 @@ import javax.net.ssl.X509TrustManager;
 
 public final class SecurityUtils {
 
+  private static final Logger log = Logger.getLogger(SecurityUtils.class);
+
   public static KeyStore loadKeyStore(String filePath, String pass) {
     try {
       KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
@@ -75,7 +78,7 @@ public final class SecurityUtils {
         }
       }
     } catch (InvalidNameException e) {
-      System.out.println("InvalidNameException in getCertCNFromSubject: " + e.getMessage());
+      log.warn("InvalidNameException in getCertCNFromSubject: " + e.getMessage());
       return "";
     }
 
@@ -120,7 +123,7 @@ public final class SecurityUtils {
       keystore.setCertificateEntry(alias, cert);
       return keystore;
     } catch (KeyStoreException | IOException | NoSuchAlgorithmException | CertificateException e) {
-      e.printStackTrace();
+      log.error("Keystore creation from " + filePath + " failed", e);
       throw new ServiceConfigurationError("Keystore creation from cert failed...", e);
     }
   }
@@ -156,7 +159,7 @@ public final class SecurityUtils {
     try {
       enumeration = keystore.aliases();
     } catch (KeyStoreException e) {
-      e.printStackTrace();
+      log.error("Reading the aliases of the keystore failed", e);
       return null;
     }
 
@@ -167,7 +170,7 @@ public final class SecurityUtils {
       try {
         clientCert = (X509Certificate) keystore.getCertificate(alias);
       } catch (KeyStoreException e) {
-        e.printStackTrace();
+        log.warn("Reading the certificate of " + alias + " failed", e);
         continue;
       }
       String clientCertCN = getCertCNFromSubject(clientCert.getSubjectDN().getName());
@@ -209,7 +212,7 @@ public final class SecurityUtils {
     try {
       kf = KeyFactory.getInstance("RSA");
     } catch (NoSuchAlgorithmException e) {
-      e.printStackTrace();
+      log.error("RSA key factory is not available", e);
     }
 
     // noinspection ConstantConditions
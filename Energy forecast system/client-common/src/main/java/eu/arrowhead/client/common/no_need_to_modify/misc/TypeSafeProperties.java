@@ -9,17 +9,19 @@
 
 package eu.arrowhead.client.common.no_need_to_modify.misc;
 
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
 import java.util.Properties;
 
 public class TypeSafeProperties extends Properties {
 
+  private static final Logger log = Logger.getLogger(TypeSafeProperties.class);
+
   public int getIntProperty(String key, int defaultValue) {
     String val = getProperty(key);
     try {
       return (val == null) ? defaultValue : Integer.valueOf(val);
     } catch (NumberFormatException e) {
-      System.out
-          .println(val + " is not a valid number! Please fix the \"" + key + "\" property! Using default value (" + defaultValue + ") instead!");
+      log.warn(val + " is not a valid number! Please fix the \"" + key + "\" property! Using default value (" + defaultValue + ") instead!");
       return defaultValue;
     }
   }
@@ -29,6 +31,16 @@ public class TypeSafeProperties extends Properties {
     return (val == null) ? defaultValue : Boolean.valueOf(val);
   }
 
+  public double getDoubleProperty(String key, double defaultValue) {
+    String val = getProperty(key);
+    try {
+      return (val == null) ? defaultValue : Double.valueOf(val);
+    } catch (NumberFormatException e) {
+      log.warn(val + " is not a valid number! Please fix the \"" + key + "\" property! Using default value (" + defaultValue + ") instead!");
+      return defaultValue;
+    }
+  }
+
   //NOTE add more data types later if needed
 
 }
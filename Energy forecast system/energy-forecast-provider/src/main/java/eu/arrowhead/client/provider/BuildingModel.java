@@ -0,0 +1,35 @@
+package eu.arrowhead.client.provider;
+
+import weka.classifiers.Classifier;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+
+/**
+ * Immutable snapshot of the trained models of one building, this is what the PredicterRegistry keeps in memory.
+ */
+final class BuildingModel {
+    private final Classifier heatModel;
+    private final float[] waterModel;
+
+    BuildingModel(Classifier heatModel, float[] waterModel) {
+        this.heatModel = heatModel;
+        this.waterModel = waterModel.clone();
+    }
+
+    float predictTotalUsage(double outTemp) throws Exception {
+        if (heatModel != null) {
+            Instance instance = new DenseInstance(2);
+            instance.setValue(0, outTemp); // Temperature
+            // Weka classifiers keep intermediate results in their own fields, they can not be shared between threads
+            synchronized (heatModel) {
+                return (float) heatModel.classifyInstance(instance);
+            }
+        } else {
+            throw new NullPointerException("Learner not initialised");
+        }
+    }
+
+    float predictWaterUsage(int hour) {
+        return waterModel[hour];
+    }
+}
@@ -9,30 +9,54 @@
 
 package eu.arrowhead.client.provider;
 
+import eu.arrowhead.client.common.can_be_modified.misc.ContinuationToken;
+import eu.arrowhead.client.common.can_be_modified.model.Entry;
 import eu.arrowhead.client.common.can_be_modified.model.Message;
 import eu.arrowhead.client.common.no_need_to_modify.ArrowheadProps;
 import eu.arrowhead.client.common.no_need_to_modify.ArrowheadProvider;
 import eu.arrowhead.client.common.no_need_to_modify.Orchestrator;
+import eu.arrowhead.client.common.no_need_to_modify.ProviderPool;
 import eu.arrowhead.client.common.no_need_to_modify.Utility;
 import eu.arrowhead.client.common.no_need_to_modify.exception.ArrowheadException;
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
 import eu.arrowhead.client.common.no_need_to_modify.model.*;
 import org.joda.time.DateTime;
 
 import javax.ws.rs.core.Response;
-import javax.ws.rs.core.UriBuilder;
 import java.net.URI;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public class EnergyForecastProvider extends ArrowheadProvider {
 
-    private final UriBuilder indoorUrl;
-    private final UriBuilder outdoorUrl;
+    private static final Logger log = Logger.getLogger(EnergyForecastProvider.class);
+
+    private final ProviderPool indoorProviders;
+    private final ProviderPool outdoorProviders;
+    private final int pageSize;
+
+    // One page of a provider response, with the token of the next one (null on the last page)
+    private static final class Page {
+        final List<Entry> entries;
+        final String continuation;
+
+        Page(Response response) {
+            continuation = response.getHeaderString(ContinuationToken.HEADER);
+            try {
+                entries = response.readEntity(Message.class).getEntry();
+            } catch (RuntimeException e) {
+                response.close();
+                throw e;
+            }
+        }
+    }
 
     private EnergyForecastProvider(String[] args) {
         super(args,
@@ -40,15 +64,16 @@ public class EnergyForecastProvider extends ArrowheadProvider {
                 new String[] {"eu.arrowhead.client.common"});
 
         ServiceRegistryEntry srEntry = ArrowheadProps.getServiceRegistryEntry(props, baseUri, isSecure, base64PublicKey);
-        System.out.println("Service Registry Entry: " + Utility.toPrettyJson(null, srEntry));
+        log.debug(() -> "Service Registry Entry: " + Utility.toPrettyJson(null, srEntry));
         registerToServiceRegistry(srEntry);
 
         final ServiceRequestForm indoorSrf = buildServiceRequestForm("Indoor", isSecure, props);
         final ServiceRequestForm outdoorSrf = buildServiceRequestForm("Outdoor", isSecure, props);
 
         final Orchestrator orchestrator = new Orchestrator(isSecure);
-        indoorUrl = orchestrator.sendOrchestrationRequest(indoorSrf);
-        outdoorUrl = orchestrator.sendOrchestrationRequest(outdoorSrf);
+        indoorProviders = orchestrator.getProviderPool(indoorSrf);
+        outdoorProviders = orchestrator.getProviderPool(outdoorSrf);
+        pageSize = props.getIntProperty("update_page_size", 8760);
 
         updateData();
         final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
@@ -58,26 +83,45 @@ public class EnergyForecastProvider extends ArrowheadProvider {
     }
 
     private void updateData() {
-        System.out.println("Updating data and learning model");
+        log.info("Updating data and learning model");
         try {
             final long now = DateTime.now().getMillis() / 1000;
-            final Message outdoorData = get(outdoorUrl, Predicter.lastConsumptionTimeStamp(), now);
-            Predicter.update(outdoorData.getEntry());
-            long from = Predicter.lastIndoorTimeStamp();
-            final Message indoorData = get(indoorUrl, from, now);
-            Predicter.update(indoorData.getEntry());
+            // Both providers are queried at the same time, the outdoor data does not move the last indoor timestamp
+            final CompletableFuture<Page> outdoorData = get(outdoorProviders, Predicter.lastConsumptionTimeStamp(), now, null);
+            final CompletableFuture<Page> indoorData = get(indoorProviders, Predicter.lastIndoorTimeStamp(), now, null);
+            // The indoor temperatures are stored in the rows created from the outdoor data, so that is ingested first
+            ingestPages(outdoorProviders, outdoorData);
+            ingestPages(indoorProviders, indoorData);
+            Predicter.train();
         } catch (Exception e) {
-            System.out.println("Error while learning");
-            e.printStackTrace();
+            log.error("Error while learning", e);
+        }
+    }
+
+    /*
+      Ingests the pages of a response one by one, so only a bounded number of entries is held in memory. The next page
+      is requested as soon as the previous one arrived, and is in flight while the previous one is being stored.
+     */
+    private void ingestPages(ProviderPool providers, CompletableFuture<Page> firstPage) throws Exception {
+        CompletableFuture<Page> nextPage = firstPage;
+        while (nextPage != null) {
+            final Page page = nextPage.join();
+            nextPage = page.continuation == null ? null : get(providers, 0, 0, page.continuation);
+            Predicter.ingest(page.entries);
         }
     }
 
-    private Message get(UriBuilder url, long from, long to) {
-        final URI uri = url.clone()
-                .queryParam("Tstart", from)
-                .queryParam("Tend", to)
-                .build();
-        return Utility.requestEntity("GET", uri.toString(), null, Message.class);
+    // Providers not supporting pagination ignore the limit, and send the whole range as a single page
+    private CompletableFuture<Page> get(ProviderPool providers, long from, long to, String continuation) {
+        return providers.callAsync(url -> {
+            if (continuation != null) {
+                url.queryParam(ContinuationToken.QUERY_PARAM, continuation);
+            } else {
+                url.queryParam("Tstart", from).queryParam("Tend", to);
+            }
+            final URI uri = url.queryParam("limit", pageSize).build();
+            return Utility.sendRequestThrowAsync("GET", uri.toString(), null).thenApply(Page::new);
+        });
     }
 
     static ServiceRequestForm buildServiceRequestForm(String serviceDefinition, boolean isSecure, Properties props) {
@@ -9,11 +9,14 @@
 
 package eu.arrowhead.client.provider;
 
+import eu.arrowhead.client.common.can_be_modified.misc.BinaryMessageCodec;
 import eu.arrowhead.client.common.can_be_modified.model.Entry;
 import eu.arrowhead.client.common.can_be_modified.model.Message;
 import eu.arrowhead.client.common.no_need_to_modify.ArrowheadResource;
 import eu.arrowhead.client.common.no_need_to_modify.Orchestrator;
 import eu.arrowhead.client.common.no_need_to_modify.Utility;
+import eu.arrowhead.client.common.no_need_to_modify.exception.AuthException;
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
 import eu.arrowhead.client.common.no_need_to_modify.misc.TypeSafeProperties;
 import eu.arrowhead.client.common.no_need_to_modify.model.ServiceRequestForm;
 import org.joda.time.DateTime;
@@ -28,8 +31,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Path("forecast")
-@Produces(MediaType.APPLICATION_JSON)
+@Produces({MediaType.APPLICATION_JSON, BinaryMessageCodec.MEDIA_TYPE})
 public class EnergyForecastResource extends ArrowheadResource {
+    private static final Logger log = Logger.getLogger(EnergyForecastResource.class);
+
     private final TypeSafeProperties props = Utility.getProp("app.properties");
 
     private Message get(UriBuilder url, long building, long from, long to) {
@@ -52,9 +57,15 @@ public class EnergyForecastResource extends ArrowheadResource {
             final boolean isSecure = context.isSecure();
             final Orchestrator orchestrator = new Orchestrator(isSecure);
             final ServiceRequestForm outdoorSrf = EnergyForecastProvider.buildServiceRequestForm("Outdoor", isSecure, props);
-            final UriBuilder outdoorUrl = orchestrator.sendOrchestrationRequest(outdoorSrf);
 
-            List<Entry> forecasts = get(outdoorUrl, building, time - 3600, time + 1800).getEntry();
+            List<Entry> forecasts;
+            try {
+                forecasts = orchestrator.getProviderPool(outdoorSrf).call(url -> get(url, building, time - 3600, time + 1800)).getEntry();
+            } catch (AuthException e) {
+                // The token of the cached orchestration result might have expired
+                orchestrator.invalidate(outdoorSrf);
+                forecasts = orchestrator.getProviderPool(outdoorSrf).call(url -> get(url, building, time - 3600, time + 1800)).getEntry();
+            }
             Entry forecast = forecasts.get(forecasts.size() - 1);
 
             Entry entry = new Entry();
@@ -65,13 +76,13 @@ public class EnergyForecastResource extends ArrowheadResource {
                 float total = Predicter.predictTotalUsage(building, forecast.getOutTemp());
                 entry.setTotal(total);
             } catch (Exception e) {
-                e.printStackTrace();
+                log.error("Predicting the total usage failed", e);
             }
             try {
                 float water = Predicter.predictWaterUsage(building, new DateTime(time).getHourOfDay());
                 entry.setWater(water);
             } catch (Exception e) {
-                e.printStackTrace();
+                log.error("Predicting the water usage failed", e);
             }
             entry.setOutTemp(forecast.getOutTemp());
             ArrayList<Entry> entries = new ArrayList<>();
@@ -0,0 +1,57 @@
+package eu.arrowhead.client.provider;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.functions.MultilayerPerceptron;
+
+import java.util.ServiceConfigurationError;
+
+/* Heat models the Predicter can train, selected with the "predicter_heat_model" property.
+   MLP retrains a MultilayerPerceptron on the whole history of a building on every update, ONLINE only feeds the
+   readings received since the previous update into an OnlineHeatRegression. */
+enum HeatModelType {
+    MLP(false) {
+        @Override
+        Classifier create() {
+            return new MultilayerPerceptron();
+        }
+
+        @Override
+        boolean isInstance(Classifier classifier) {
+            return classifier instanceof MultilayerPerceptron;
+        }
+    },
+    ONLINE(true) {
+        @Override
+        Classifier create() {
+            return new OnlineHeatRegression();
+        }
+
+        @Override
+        boolean isInstance(Classifier classifier) {
+            return classifier instanceof OnlineHeatRegression;
+        }
+    };
+
+    private final boolean incremental;
+
+    HeatModelType(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    abstract Classifier create();
+
+    abstract boolean isInstance(Classifier classifier);
+
+    boolean isIncremental() {
+        return incremental;
+    }
+
+    static HeatModelType fromProperty(String value) {
+        if (value == null || value.trim().isEmpty()) return MLP;
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ServiceConfigurationError("Unknown predicter_heat_model: " + value + " (valid values: mlp, online)", e);
+        }
+    }
+}
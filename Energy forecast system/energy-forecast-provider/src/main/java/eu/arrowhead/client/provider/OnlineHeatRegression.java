@@ -0,0 +1,75 @@
+package eu.arrowhead.client.provider;
+
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.UpdateableClassifier;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Piecewise linear regression of the heat consumption on the outdoor temperature (first attribute). Every 5 degree
+ * wide temperature band keeps running least squares sums, so the model can be updated with new readings only,
+ * instead of being retrained on the whole history like the MultilayerPerceptron.
+ */
+public class OnlineHeatRegression extends AbstractClassifier implements UpdateableClassifier {
+    private static final long serialVersionUID = 1L;
+
+    private static final double MIN_TEMP = -30.0;
+    private static final double BAND_WIDTH = 5.0;
+    private static final int BANDS = 14;
+    private static final int MIN_SAMPLES = 10;
+
+    // Index BANDS holds the sums of all readings, used when a band has too few of them
+    private final double[] n = new double[BANDS + 1];
+    private final double[] sumX = new double[BANDS + 1];
+    private final double[] sumY = new double[BANDS + 1];
+    private final double[] sumXX = new double[BANDS + 1];
+    private final double[] sumXY = new double[BANDS + 1];
+
+    @Override
+    public void buildClassifier(Instances data) {
+        for (int i = 0; i <= BANDS; i++) {
+            n[i] = sumX[i] = sumY[i] = sumXX[i] = sumXY[i] = 0;
+        }
+        for (Instance instance : data) updateClassifier(instance);
+    }
+
+    @Override
+    public void updateClassifier(Instance instance) {
+        if (instance.isMissing(0) || instance.classIsMissing()) return;
+        final double x = instance.value(0);
+        final double y = instance.classValue();
+        add(band(x), x, y);
+        add(BANDS, x, y);
+    }
+
+    @Override
+    public double classifyInstance(Instance instance) {
+        final double x = instance.value(0);
+        final int band = band(x);
+        if (n[band] >= MIN_SAMPLES) return predict(band, x);
+        if (n[BANDS] > 0) return predict(BANDS, x);
+        return 0;
+    }
+
+    private void add(int band, double x, double y) {
+        n[band]++;
+        sumX[band] += x;
+        sumY[band] += y;
+        sumXX[band] += x * x;
+        sumXY[band] += x * y;
+    }
+
+    private double predict(int band, double x) {
+        final double meanX = sumX[band] / n[band];
+        final double meanY = sumY[band] / n[band];
+        final double varianceX = sumXX[band] / n[band] - meanX * meanX;
+        if (varianceX < 1e-9) return meanY;
+        final double slope = (sumXY[band] / n[band] - meanX * meanY) / varianceX;
+        return meanY + slope * (x - meanX);
+    }
+
+    private static int band(double x) {
+        final int band = (int) Math.floor((x - MIN_TEMP) / BAND_WIDTH);
+        return Math.max(0, Math.min(BANDS - 1, band));
+    }
+}
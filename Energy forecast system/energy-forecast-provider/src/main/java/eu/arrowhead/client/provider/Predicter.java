@@ -3,71 +3,96 @@ package eu.arrowhead.client.provider;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVWriter;
 import eu.arrowhead.client.common.can_be_modified.model.Entry;
+import eu.arrowhead.client.common.no_need_to_modify.Utility;
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
+import eu.arrowhead.client.common.no_need_to_modify.misc.TypeSafeProperties;
+import eu.arrowhead.client.provider.storage.LongIntHashMap;
+import eu.arrowhead.client.provider.storage.StorageEngine;
+import eu.arrowhead.client.provider.storage.TimeSeriesStore;
 import org.joda.time.DateTime;
 import weka.classifiers.Classifier;
-import weka.classifiers.functions.MultilayerPerceptron;
+import weka.classifiers.UpdateableClassifier;
+import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.SerializationHelper;
-import weka.core.converters.ConverterUtils;
-import weka.filters.Filter;
-import weka.filters.unsupervised.attribute.Remove;
+import weka.core.Utils;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Predicter {
     private static final String CACHE_MODEL_FMT = "cache%d.model";
-    private static final String CACHE_CSV_FMT = "cache%d.csv";
     private static final String CACHE_TS = "cache_ts.csv";
-    private static final Logger LOG = Logger.getLogger(Predicter.class.getName());
+    private static final String CACHE_PENDING = "cache_pending.csv";
+    private static final Logger log = Logger.getLogger(Predicter.class);
+    private static final TypeSafeProperties PROPS = Utility.getProp("app.properties");
+    private static final StorageEngine STORAGE = StorageEngine.fromProperty(PROPS.getProperty("predicter_storage"));
+    private static final HeatModelType HEAT_MODEL = HeatModelType.fromProperty(PROPS.getProperty("predicter_heat_model"));
+    private static final PredicterRegistry REGISTRY =
+            new PredicterRegistry(PROPS.getIntProperty("predicter_cache_size", 1000), Predicter::loadModel);
+    private static final ExecutorService TRAINING_POOL = createTrainingPool(PROPS.getIntProperty("predicter_training_threads", 0));
+    /*
+      Buildings with ingested but not yet learnt rows, mapped to the first such row. Saved to CACHE_PENDING together
+      with the timestamps, which already cover these rows, so they are still learnt after a failed update or a restart.
+     */
+    private static final Map<Long, Integer> PENDING = new ConcurrentHashMap<>();
 
     private static Long[] tsData = null;
 
     private final String cacheModel;
-    private final String cacheCSV;
 
-    private List<String[]> csvData;
+    private TimeSeriesStore store;
+    private LongIntHashMap rowByTimestamp; // Only built when entries are ingested
+    private int firstNewRow; // Rows from here on were added since the heat model was last trained
     private Classifier heatModel;
     private float[] waterModel = new float[24];
 
     public static float predictWaterUsage(long building, int hour) throws Exception {
-        return new Predicter(building).predictWaterUsage(hour);
+        return REGISTRY.get(building).predictWaterUsage(hour);
     }
 
     public static float predictTotalUsage(long building, double outTemp) throws Exception {
-        return new Predicter(building).predictTotalUsage(outTemp);
+        return REGISTRY.get(building).predictTotalUsage(outTemp);
     }
 
     public static void update(List<Entry> entries) throws Exception {
+        ingest(entries);
+        train();
+    }
+
+    /*
+      Stores the entries without retraining the models, so a large update can be ingested in several parts (e.g. pages
+      of a provider response). The models of the buildings involved are retrained by the next train() call.
+     */
+    public static void ingest(List<Entry> entries) throws Exception {
         if (tsData == null) readTSCache();
 
-        Map<Long, Predicter> predicters = new TreeMap<>();
+        Map<Long, List<Entry>> batches = new TreeMap<>();
 
-        final int len = entries.size();
-        int i = 0;
         for (Entry entry : entries) {
-            i++;
-            if (i % 1000 == 0) {
-                LOG.info("Entry " + i + "/" + len + "...");
-            }
             final Long building = entry.getBuilding();
             final Long timestamp = entry.getTimestamp();
 
             if (building == null) {
-                LOG.warning("No building ID in entry, skipping...");
+                log.warn("No building ID in entry, skipping...");
                 continue;
             }
 
-            if (!predicters.containsKey(building)) predicters.put(building, new Predicter(building));
-
-            if (entry.getOutTemp() != null || entry.getTotal() != null || entry.getWater() != null)
-                predicters.get(building).addUsage(entry);
+            batches.computeIfAbsent(building, b -> new ArrayList<>()).add(entry);
 
             if (entry.getOutTemp() != null) {
                 if (tsData[0] == null || timestamp > tsData[0]) tsData[0] = timestamp;
@@ -79,21 +104,91 @@ public class Predicter {
 
             if (entry.getInTemp() != null) {
                 if (tsData[2] == null || timestamp > tsData[2]) tsData[2] = timestamp;
-                predicters.get(building).addIndoorTemp(entry);
             }
         }
 
-        predicters.forEach((building, predicter) -> {
+        forEachBuilding(batches.keySet(), "stored", building -> {
+            final Predicter predicter = new Predicter(building, STORAGE.open(building));
+            try {
+                predicter.addEntries(batches.get(building));
+                predicter.store.flush();
+            } finally {
+                // Also when storing failed part way, as some rows may have been written (from row 0 if none was known)
+                PENDING.merge(building, predicter.firstNewRow, Math::min);
+                predicter.closeStore();
+            }
+        });
+
+        writePendingCache();
+        writeTSCache();
+    }
+
+    // Retrains the models of every building that received entries since the last call
+    public static void train() throws IOException, InterruptedException {
+        if (tsData == null) readTSCache();
+
+        forEachBuilding(new ArrayList<>(PENDING.keySet()), "trained", building -> {
+            final Predicter predicter = new Predicter(building, STORAGE.open(building));
             try {
-                predicter.writeCSVCache();
-                predicter.recalcHeatModel();
+                predicter.readModelCache();
+                predicter.firstNewRow = PENDING.get(building);
+                predicter.updateHeatModel();
                 predicter.recalcWaterModel();
+                REGISTRY.replace(building, predicter.model());
+                // A building that failed is tried again by the next call
+                PENDING.remove(building);
+            } finally {
+                predicter.closeStore();
+            }
+        });
+
+        writePendingCache();
+    }
+
+    private interface BuildingTask {
+        void run(long building) throws Exception;
+    }
+
+    /*
+      Runs the task for every building on the training pool. A building that fails is logged and skipped, the others are
+      still processed.
+     */
+    private static void forEachBuilding(Collection<Long> buildings, String action, BuildingTask task) throws InterruptedException {
+        final int total = buildings.size();
+        final AtomicInteger done = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final long start = System.currentTimeMillis();
+
+        List<Callable<Void>> tasks = new ArrayList<>(total);
+        for (Long building : buildings) tasks.add(() -> {
+            try {
+                task.run(building);
             } catch (Exception e) {
-                LOG.log(Level.WARNING, "Updating predicter failed: ", e);
+                failed.incrementAndGet();
+                log.warn("Updating predicter of building " + building + " failed", e);
+            } finally {
+                final int finished = done.incrementAndGet();
+                if (finished % 10 == 0 || finished == total) {
+                    log.info("Building " + finished + "/" + total + " " + action + " (" + failed.get() + " failed, "
+                            + (System.currentTimeMillis() - start) / 1000 + " s)...");
+                }
             }
+            return null;
         });
+        TRAINING_POOL.invokeAll(tasks);
 
-        writeTSCache();
+        log.info("Updated " + (total - failed.get()) + "/" + total + " buildings in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private static ExecutorService createTrainingPool(int threads) {
+        if (threads <= 0) threads = Runtime.getRuntime().availableProcessors();
+        final AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "predicter-training-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     public static long lastWeatherTimeStamp() {
@@ -114,95 +209,101 @@ public class Predicter {
         else return 0;
     }
 
+    private void addEntries(List<Entry> entries) {
+        // Rows are in timestamp order, so only the ones not older than the oldest new entry can collide with it
+        long oldest = Long.MAX_VALUE;
+        for (Entry entry : entries) oldest = Math.min(oldest, entry.getTimestamp() / 100 * 100);
+        final int first = store.lowerBound(oldest);
+        rowByTimestamp = new LongIntHashMap(store.size() - first + entries.size());
+        for (int row = first; row < store.size(); row++) rowByTimestamp.put(store.getTimestamp(row), row);
+        firstNewRow = store.size();
+
+        for (Entry entry : entries) {
+            if (entry.getOutTemp() != null || entry.getTotal() != null || entry.getWater() != null)
+                addUsage(entry);
+
+            if (entry.getInTemp() != null)
+                addIndoorTemp(entry);
+        }
+    }
+
     private void addIndoorTemp(Entry entry) {
-        String timeStampOfEntry = entry.getTimestamp().toString();
-        timeStampOfEntry = timeStampOfEntry.substring(0, timeStampOfEntry.length() - 2);
-        boolean timestampExists = false; // check if the timestamp already exists
-        int indexOfExistingTimestep = -1;
-        for (int j = 0; j < csvData.size(); j++)
-            if (csvData.get(j)[0].equals(timeStampOfEntry)) {
-                timestampExists = true;
-                indexOfExistingTimestep = j;
-            }
-        if (!timestampExists) {
+        final long timeStampOfEntry = entry.getTimestamp() / 100 * 100;
+        // check if the timestamp already exists
+        final int indexOfExistingTimestep = rowByTimestamp.get(timeStampOfEntry, -1);
+        if (indexOfExistingTimestep < 0) {
             // It should always exist, unless the data was incomplete
-            LOG.info("No existing entry found, skipping...");
+            log.info("No existing entry found, skipping...");
         } else {
             if (entry.getInTemp() != null)
-                csvData.get(indexOfExistingTimestep)[1] = entry.getInTemp().toString();
+                store.setIndoor(indexOfExistingTimestep, entry.getInTemp());
 
         }
     }
 
     private void addUsage(Entry entry) {
-        String timeStampOfEntry = entry.getTimestamp().toString();
-        if (timeStampOfEntry.length() < 3) timeStampOfEntry = "00" + timeStampOfEntry;
-        timeStampOfEntry = timeStampOfEntry.substring(0, timeStampOfEntry.length() - 2);
-        boolean timestampExists = false; // check if the timestamp already exists
-        for (String[] record : csvData)
-            if (record[0].equals(timeStampOfEntry)) {
-                timestampExists = true;
-            }
-        if (!timestampExists) {
+        final long timeStampOfEntry = entry.getTimestamp() / 100 * 100;
+        // check if the timestamp already exists
+        if (rowByTimestamp.get(timeStampOfEntry, -1) < 0) {
+            final int last = store.size() - 1;
             // if all necessary information was sent, add them to the records
             if (entry.getOutTemp() != null && entry.getTotal() != null && entry.getWater() != null) {
-                String[] currentRecord = new String[8];
-                currentRecord[0] = timeStampOfEntry;
-                currentRecord[2] = entry.getOutTemp().toString();
-                currentRecord[3] = entry.getTotal().toString();
-                currentRecord[4] = entry.getWater().toString();
-                currentRecord[5] = "" + Math.abs(entry.getTotal() - entry.getWater());
-                currentRecord[6] = "FALSE";
-                currentRecord[7] = "FALSE";
                 // If the last record was incomplete, remove this one as it is unreliable
-                if (csvData.size() == 0 || csvData.get(csvData.size() - 1)[7].equals("FALSE"))
-                    csvData.add(currentRecord);
-                else if (csvData.size() > 0) csvData.get(csvData.size() - 1)[7] = "FALSE";
+                if (last < 0 || (store.getFlags(last) & TimeSeriesStore.FLAG_PREVIOUS_INCOMPLETE) == 0) {
+                    store.append(timeStampOfEntry, Float.NaN, entry.getOutTemp(), entry.getTotal(), entry.getWater(), 0);
+                    rowByTimestamp.put(timeStampOfEntry, store.size() - 1);
+                } else store.setFlags(last, store.getFlags(last) & ~TimeSeriesStore.FLAG_PREVIOUS_INCOMPLETE);
             }
             // if getTotal or getWater was not sent, we need to delete the last record as it is unreliable.
             if (entry.getTotal() == null || entry.getWater() == null) {
                 // only if the last entry has not been deleted yet
-                if (csvData.size() > 0 && csvData.get(csvData.size() - 1)[6].equals("FALSE"))
+                if (last >= 0 && (store.getFlags(last) & TimeSeriesStore.FLAG_NEXT_INCOMPLETE) == 0)
                 {
-                    csvData.remove(csvData.size() - 1);
-                    csvData.get(csvData.size() - 1)[6] = "TRUE";
-                    csvData.get(csvData.size() - 1)[7] = "TRUE";
+                    rowByTimestamp.remove(store.getTimestamp(store.size() - 1));
+                    store.removeLast();
+                    firstNewRow = Math.min(firstNewRow, store.size());
+                    if (store.size() > 0)
+                        store.setFlags(store.size() - 1,
+                                TimeSeriesStore.FLAG_NEXT_INCOMPLETE | TimeSeriesStore.FLAG_PREVIOUS_INCOMPLETE);
                 }
             }
             // if only the temperature is missing, we ignore the current entry
             // (but set the deleting of the next entry to false)
             else if (entry.getOutTemp() == null) {
-                if (csvData.size() > 0)
-                    csvData.get(csvData.size() - 1)[7] = "FALSE";
+                if (last >= 0)
+                    store.setFlags(last, store.getFlags(last) & ~TimeSeriesStore.FLAG_PREVIOUS_INCOMPLETE);
             }
         } else {
-            LOG.warning("Duplicated timestamp found, skipping...");
+            log.warn("Duplicated timestamp found, skipping...");
         }
     }
 
-    private float predictTotalUsage(double outTemp) throws Exception {
-        if (heatModel != null) {
-            Instance instance = new DenseInstance(2);
-            instance.setValue(0, outTemp); // Temperature
-            return (float) heatModel.classifyInstance(instance);
-        } else {
-            throw new NullPointerException("Learner not initialised");
-        }
+    private BuildingModel model() {
+        return new BuildingModel(heatModel, waterModel);
     }
 
-    private float predictWaterUsage(int hour) {
-        return waterModel[hour];
+    private static BuildingModel loadModel(long building) throws Exception {
+        final Predicter predicter = new Predicter(building);
+        try {
+            return predicter.model();
+        } finally {
+            predicter.closeStore();
+        }
     }
 
     private Predicter(long building) throws Exception {
-        cacheModel = String.format(CACHE_MODEL_FMT, building);
-        cacheCSV = String.format(CACHE_CSV_FMT, building);
-
-        readCSVCache();
+        this(building, STORAGE.open(building));
         readModelCache();
 
         recalcWaterModel();
-        if (heatModel == null) recalcHeatModel(); // Only recalc if we couldn't load cache
+        // Only recalc if we couldn't load cache (or it holds another kind of model)
+        if (heatModel == null || !HEAT_MODEL.isInstance(heatModel)) recalcHeatModel();
+    }
+
+    // Only opens the store, the models are not loaded
+    private Predicter(long building, TimeSeriesStore store) {
+        cacheModel = String.format(CACHE_MODEL_FMT, building);
+        this.store = store;
     }
 
     private static void readTSCache() {
@@ -215,23 +316,23 @@ public class Predicter {
         } catch (IOException ignored) {}
 
         if (tsData == null) tsData = new Long[3];
+
+        try {
+            CSVReader reader = new CSVReader(new FileReader(CACHE_PENDING), ',');
+            String[] strings;
+            while ((strings = reader.readNext()) != null) {
+                PENDING.merge(Long.parseLong(strings[0]), Integer.parseInt(strings[1]), Math::min);
+            }
+            reader.close();
+        } catch (IOException ignored) {}
     }
 
-    private void readCSVCache() throws IOException {
-        // Create CSV cache file if necessary and add header
-        File file = new File(cacheCSV);
-        if (file.createNewFile()) {
-            FileWriter writer = new FileWriter(file);
-            writer.write("\"DATE\",\"Indoor\",\"Outdoor\",\"Energy Consumption kWh HEAT\"," +
-                    "\"ENERGY Consumption kWh Water\",\"Difference greater 0\",\"NextEntryWasIncomplete\"," +
-                    "\"PreviousEntryWasIncomplete\"\n");
-            writer.close();
+    private void closeStore() {
+        try {
+            store.close();
+        } catch (IOException e) {
+            log.warn("Closing time series store failed", e);
         }
-
-        // Load CSV cache file
-        CSVReader reader = new CSVReader(new FileReader(cacheCSV), ',');
-        csvData = reader.readAll();
-        reader.close();
     }
 
     private void readModelCache() {
@@ -245,58 +346,60 @@ public class Predicter {
     private void recalcWaterModel() {
         final int[] count = new int[24];
         final float[] total = new float[24];
-        for (String[] record : csvData) {
-            try {
-                final long timestamp = Long.parseLong(record[0]) * 100;
-                final float water = Float.parseFloat(record[4]);
-                final DateTime dateTime = new DateTime(timestamp * 1000);
-                final int hour = dateTime.getHourOfDay();
-                count[hour]++;
-                total[hour] += water;
-            } catch (NumberFormatException ignored) {}
+        for (int row = 0; row < store.size(); row++) {
+            final float water = store.getWater(row);
+            if (Float.isNaN(water)) continue;
+            final DateTime dateTime = new DateTime(store.getTimestamp(row) * 1000);
+            final int hour = dateTime.getHourOfDay();
+            count[hour]++;
+            total[hour] += water;
         }
         for (int i = 0; i < 24; i++)
             waterModel[i] = total[i]/count[i];
     }
 
     private void recalcHeatModel() throws Exception {
-        if (csvData.size() > 1) {
-            trainHeatModel(new ConverterUtils.DataSource(cacheCSV).getDataSet(), new int[]{2, 5});
+        if (store.size() > 0) {
+            trainHeatModel(heatInstances(0));
             writeModelCache();
         }
     }
 
+    // Incremental models only learn the rows added by the last ingest, the others are retrained from scratch
+    private void updateHeatModel() throws Exception {
+        if (HEAT_MODEL.isIncremental() && HEAT_MODEL.isInstance(heatModel)) {
+            final UpdateableClassifier model = (UpdateableClassifier) heatModel;
+            for (Instance instance : heatInstances(firstNewRow)) model.updateClassifier(instance);
+            writeModelCache();
+        } else {
+            recalcHeatModel();
+        }
+    }
+
     private void writeModelCache() throws Exception {
         SerializationHelper.write(cacheModel, heatModel);
     }
 
-    private void trainHeatModel(Instances data, int[] indices) throws Exception {
-        Remove r = new Remove();
-        Instances res = new Instances(data);
-        r.setAttributeIndicesArray(indices); // This must be before setting inputformat
-        r.setInvertSelection(true);
-        try {
-            r.setInputFormat(res);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        try {
-            res = Filter.useFilter(res, r);
-        } catch (Exception e) {
-            e.printStackTrace();
+    // Outdoor temperature and the heat part of the consumption (total - water), class label last
+    private Instances heatInstances(int fromRow) {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("Outdoor"));
+        attributes.add(new Attribute("Difference greater 0"));
+        Instances data = new Instances("heat", attributes, Math.max(0, store.size() - fromRow));
+        for (int row = fromRow; row < store.size(); row++) {
+            final float outdoor = store.getOutdoor(row);
+            final float difference = Math.abs(store.getTotal(row) - store.getWater(row));
+            data.add(new DenseInstance(1.0, new double[] {
+                    Float.isNaN(outdoor) ? Utils.missingValue() : outdoor,
+                    Float.isNaN(difference) ? Utils.missingValue() : difference}));
         }
-
-        res.setClassIndex(res.numAttributes() - 1); // class label must be last
-        heatModel = new MultilayerPerceptron();
-        heatModel.buildClassifier(res);
+        data.setClassIndex(data.numAttributes() - 1); // class label must be last
+        return data;
     }
 
-    private void writeCSVCache() throws IOException {
-        FileWriter writer = new FileWriter(cacheCSV);
-        //using custom delimiter and quote character
-        CSVWriter csvWriter = new CSVWriter(writer, ',');
-        csvWriter.writeAll(csvData, false);
-        csvWriter.close();
+    private void trainHeatModel(Instances data) throws Exception {
+        heatModel = HEAT_MODEL.create();
+        heatModel.buildClassifier(data);
     }
 
     private static void writeTSCache() throws IOException {
@@ -308,4 +411,16 @@ public class Predicter {
         csvWriter.writeNext(strings, false);
         csvWriter.close();
     }
+
+    // Written to a temporary file first, a truncated list would lose the pending rows of the buildings missing from it
+    private static void writePendingCache() throws IOException {
+        final File temporary = new File(CACHE_PENDING + ".tmp");
+        CSVWriter csvWriter = new CSVWriter(new FileWriter(temporary), ',');
+        for (Map.Entry<Long, Integer> pending : PENDING.entrySet()) {
+            csvWriter.writeNext(new String[] {pending.getKey().toString(), pending.getValue().toString()}, false);
+        }
+        csvWriter.close();
+        Files.move(temporary.toPath(), Paths.get(CACHE_PENDING), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
 }
@@ -0,0 +1,91 @@
+package eu.arrowhead.client.provider;
+
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Process-wide cache of the trained building models, so a forecast costs a map lookup plus inference instead of reading
+   the cache files and deserializing the Weka model on every request.
+   Models are loaded lazily (concurrent requests for the same building share one load), the least recently used ones are
+   evicted when there are more than maxSize of them, and retrained models are swapped in atomically. */
+final class PredicterRegistry {
+    private static final Logger log = Logger.getLogger(PredicterRegistry.class);
+
+    private final int maxSize;
+    private final Loader loader;
+    private final ConcurrentHashMap<Long, Slot> slots = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+
+    interface Loader {
+        BuildingModel load(long building) throws Exception;
+    }
+
+    private static final class Slot {
+        final CompletableFuture<BuildingModel> model = new CompletableFuture<>();
+        volatile long lastAccess;
+    }
+
+    PredicterRegistry(int maxSize, Loader loader) {
+        this.maxSize = Math.max(1, maxSize);
+        this.loader = loader;
+    }
+
+    BuildingModel get(long building) throws Exception {
+        Slot slot = slots.get(building);
+        if (slot == null) {
+            final Slot created = new Slot();
+            slot = slots.putIfAbsent(building, created);
+            if (slot == null) {
+                slot = created;
+                try {
+                    created.model.complete(loader.load(building));
+                } catch (Exception e) {
+                    slots.remove(building, created);
+                    created.model.completeExceptionally(e);
+                    throw e;
+                }
+                evictIfNeeded();
+            }
+        }
+        slot.lastAccess = clock.incrementAndGet();
+
+        try {
+            return slot.model.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Replaces the model of a building after it was retrained. Buildings that are not in memory are left to be loaded
+     * lazily from the refreshed cache files.
+     */
+    void replace(long building, BuildingModel model) {
+        final Slot slot = new Slot();
+        slot.model.complete(model);
+        slot.lastAccess = clock.incrementAndGet();
+        slots.computeIfPresent(building, (key, old) -> slot);
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    private void evictIfNeeded() {
+        while (slots.size() > maxSize) {
+            Map.Entry<Long, Slot> eldest = null;
+            for (Map.Entry<Long, Slot> entry : slots.entrySet()) {
+                if (entry.getValue().model.isDone() && (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess)) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) return; // Everything is still loading
+            final long building = eldest.getKey();
+            if (slots.remove(building, eldest.getValue())) log.debug(() -> "Evicted model of building " + building);
+        }
+    }
+}
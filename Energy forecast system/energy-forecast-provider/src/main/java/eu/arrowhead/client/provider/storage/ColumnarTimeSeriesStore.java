@@ -0,0 +1,279 @@
+package eu.arrowhead.client.provider.storage;
+
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the history of a building in fixed-width primitive columns, split into append-only, memory-mapped segment
+ * files (cache%d.ts/seg-NNNNN.dat). Only the rows touched since the last flush are written back to disk, existing
+ * history is never rewritten.
+ *
+ * The CSV cache of a building is imported into a temporary directory, which is renamed into place only when the import is
+ * complete, so an interrupted import is started over on the next open instead of leaving a truncated history. Opening
+ * the same directory is serialized, so concurrent first opens of a building do not import it twice.
+ *
+ * Segment layout: a header (magic, version, capacity, row count) followed by the timestamp (long), indoor, outdoor,
+ * total, water (float) and flags (byte) columns, each sized for {@link #ROWS_PER_SEGMENT} rows.
+ */
+public class ColumnarTimeSeriesStore implements TimeSeriesStore {
+    static final String CACHE_DIR_FMT = "cache%d.ts";
+    static final int ROWS_PER_SEGMENT = 8784; // One leap year of hourly readings
+
+    private static final String SEGMENT_FMT = "seg-%05d.dat";
+    private static final String IMPORT_SUFFIX = ".import";
+    private static final int MAGIC = 0x41485453; // "AHTS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 12;
+    private static final Logger log = Logger.getLogger(ColumnarTimeSeriesStore.class);
+    private static final ConcurrentHashMap<String, Object> OPEN_LOCKS = new ConcurrentHashMap<>();
+
+    private final File directory;
+    private final List<Segment> segments = new ArrayList<>();
+    private int size;
+
+    public ColumnarTimeSeriesStore(long building) throws IOException {
+        this(new File(String.format(CACHE_DIR_FMT, building)), new File(String.format(CsvTimeSeriesStore.CACHE_CSV_FMT, building)));
+    }
+
+    ColumnarTimeSeriesStore(File directory, File legacyCsv) throws IOException {
+        this.directory = directory;
+        synchronized (OPEN_LOCKS.computeIfAbsent(directory.getAbsolutePath(), key -> new Object())) {
+            if (legacyCsv != null && segmentFiles(directory).length == 0 && legacyCsv.exists()) {
+                importInto(directory, legacyCsv);
+            }
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create time series directory " + directory);
+            }
+
+            for (File file : segmentFiles(directory)) {
+                final Segment segment = new Segment(file);
+                segments.add(segment);
+                size += segment.count;
+            }
+        }
+    }
+
+    private static File[] segmentFiles(File directory) {
+        final File[] files = directory.listFiles((dir, name) -> name.startsWith("seg-") && name.endsWith(".dat"));
+        if (files == null) return new File[0];
+        Arrays.sort(files);
+        return files;
+    }
+
+    // Imports the CSV cache into a temporary directory, and moves it in place of the (missing or empty) store directory
+    private static void importInto(File directory, File legacyCsv) throws IOException {
+        final File temporary = new File(directory.getPath() + IMPORT_SUFFIX);
+        deleteDirectory(temporary); // Left behind by an interrupted import
+        try (ColumnarTimeSeriesStore imported = new ColumnarTimeSeriesStore(temporary, null)) {
+            imported.importCsv(new CsvTimeSeriesStore(legacyCsv));
+        }
+        deleteDirectory(directory);
+        Files.move(temporary.toPath(), directory.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void deleteDirectory(File directory) throws IOException {
+        final File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (!file.delete()) throw new IOException("Could not delete " + file);
+        }
+        if (!directory.delete()) throw new IOException("Could not delete " + directory);
+    }
+
+    /**
+     * Copies every row of an existing CSV cache into this store.
+     */
+    public void importCsv(TimeSeriesStore csv) throws IOException {
+        log.info("Importing " + csv.size() + " rows into " + directory + "...");
+        for (int row = 0; row < csv.size(); row++) {
+            append(csv.getTimestamp(row), csv.getIndoor(row), csv.getOutdoor(row), csv.getTotal(row), csv.getWater(row),
+                    csv.getFlags(row));
+        }
+        flush();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long getTimestamp(int row) {
+        return segment(row).getTimestamp(row % ROWS_PER_SEGMENT);
+    }
+
+    @Override
+    public float getIndoor(int row) {
+        return segment(row).getFloat(Segment.INDOOR, row % ROWS_PER_SEGMENT);
+    }
+
+    @Override
+    public float getOutdoor(int row) {
+        return segment(row).getFloat(Segment.OUTDOOR, row % ROWS_PER_SEGMENT);
+    }
+
+    @Override
+    public float getTotal(int row) {
+        return segment(row).getFloat(Segment.TOTAL, row % ROWS_PER_SEGMENT);
+    }
+
+    @Override
+    public float getWater(int row) {
+        return segment(row).getFloat(Segment.WATER, row % ROWS_PER_SEGMENT);
+    }
+
+    @Override
+    public int getFlags(int row) {
+        return segment(row).getFlags(row % ROWS_PER_SEGMENT);
+    }
+
+    @Override
+    public void append(long timestamp, float indoor, float outdoor, float total, float water, int flags) {
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last == null || last.count == ROWS_PER_SEGMENT) {
+            try {
+                last = new Segment(new File(directory, String.format(SEGMENT_FMT, segments.size())));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not create a new segment in " + directory, e);
+            }
+            segments.add(last);
+        }
+
+        final int index = last.count;
+        last.buffer.putLong(HEADER_SIZE + index * 8, timestamp);
+        last.putFloat(Segment.INDOOR, index, indoor);
+        last.putFloat(Segment.OUTDOOR, index, outdoor);
+        last.putFloat(Segment.TOTAL, index, total);
+        last.putFloat(Segment.WATER, index, water);
+        last.putFlags(index, flags);
+        last.setCount(index + 1);
+        size++;
+    }
+
+    @Override
+    public void setIndoor(int row, float indoor) {
+        segment(row).putFloat(Segment.INDOOR, row % ROWS_PER_SEGMENT, indoor);
+    }
+
+    @Override
+    public void setFlags(int row, int flags) {
+        segment(row).putFlags(row % ROWS_PER_SEGMENT, flags);
+    }
+
+    @Override
+    public void removeLast() {
+        if (size == 0) throw new IndexOutOfBoundsException("Time series store is empty");
+
+        final Segment last = segments.get(segments.size() - 1);
+        last.setCount(last.count - 1);
+        size--;
+        // Every segment but the last one is kept full, so the row number alone locates a segment
+        if (last.count == 0 && segments.size() > 1) {
+            segments.remove(segments.size() - 1);
+            last.delete();
+        }
+    }
+
+    @Override
+    public void flush() {
+        for (Segment segment : segments) {
+            if (segment.dirty) {
+                segment.buffer.force();
+                segment.dirty = false;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        for (Segment segment : segments) segment.channel.close();
+    }
+
+    private Segment segment(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        return segments.get(row / ROWS_PER_SEGMENT);
+    }
+
+    private static final class Segment {
+        static final int INDOOR = 0;
+        static final int OUTDOOR = 1;
+        static final int TOTAL = 2;
+        static final int WATER = 3;
+
+        private static final int FLOAT_BASE = HEADER_SIZE + ROWS_PER_SEGMENT * 8;
+        private static final int FLAGS_BASE = FLOAT_BASE + 4 * ROWS_PER_SEGMENT * 4;
+        private static final int FILE_SIZE = FLAGS_BASE + ROWS_PER_SEGMENT;
+
+        private final File file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int count;
+        private boolean dirty;
+
+        Segment(File file) throws IOException {
+            this.file = file;
+            final boolean created = !file.exists() || file.length() == 0;
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+            if (created) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, ROWS_PER_SEGMENT);
+                buffer.putInt(COUNT_OFFSET, 0);
+                dirty = true;
+            } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != ROWS_PER_SEGMENT) {
+                channel.close();
+                throw new IOException(file + " is not a valid time series segment");
+            }
+            count = buffer.getInt(COUNT_OFFSET);
+        }
+
+        long getTimestamp(int index) {
+            return buffer.getLong(HEADER_SIZE + index * 8);
+        }
+
+        float getFloat(int column, int index) {
+            return buffer.getFloat(FLOAT_BASE + (column * ROWS_PER_SEGMENT + index) * 4);
+        }
+
+        void putFloat(int column, int index, float value) {
+            buffer.putFloat(FLOAT_BASE + (column * ROWS_PER_SEGMENT + index) * 4, value);
+            dirty = true;
+        }
+
+        int getFlags(int index) {
+            return buffer.get(FLAGS_BASE + index);
+        }
+
+        void putFlags(int index, int flags) {
+            buffer.put(FLAGS_BASE + index, (byte) flags);
+            dirty = true;
+        }
+
+        void setCount(int count) {
+            this.count = count;
+            buffer.putInt(COUNT_OFFSET, count);
+            dirty = true;
+        }
+
+        void delete() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+            if (!file.delete()) file.deleteOnExit();
+        }
+    }
+}
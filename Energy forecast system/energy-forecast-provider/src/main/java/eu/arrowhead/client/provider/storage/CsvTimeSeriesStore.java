@@ -0,0 +1,138 @@
+package eu.arrowhead.client.provider.storage;
+
+import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The original cache format: the whole history of a building is kept in memory and rewritten into cache%d.csv on
+ * every flush. The timestamp column holds epoch seconds divided by 100.
+ */
+public class CsvTimeSeriesStore implements TimeSeriesStore {
+    static final String CACHE_CSV_FMT = "cache%d.csv";
+    private static final String[] HEADER = {"DATE", "Indoor", "Outdoor", "Energy Consumption kWh HEAT",
+            "ENERGY Consumption kWh Water", "Difference greater 0", "NextEntryWasIncomplete", "PreviousEntryWasIncomplete"};
+
+    private final String cacheCSV;
+    private final List<String[]> csvData = new ArrayList<>();
+
+    public CsvTimeSeriesStore(long building) throws IOException {
+        this(new File(String.format(CACHE_CSV_FMT, building)));
+    }
+
+    CsvTimeSeriesStore(File file) throws IOException {
+        cacheCSV = file.getPath();
+        if (file.exists()) {
+            CSVReader reader = new CSVReader(new FileReader(file), ',');
+            final List<String[]> records = reader.readAll();
+            reader.close();
+            // The first record is the header
+            for (int i = 1; i < records.size(); i++) {
+                if (records.get(i).length >= HEADER.length) csvData.add(records.get(i));
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return csvData.size();
+    }
+
+    @Override
+    public long getTimestamp(int row) {
+        return Long.parseLong(csvData.get(row)[0]) * 100;
+    }
+
+    @Override
+    public float getIndoor(int row) {
+        return parse(csvData.get(row)[1]);
+    }
+
+    @Override
+    public float getOutdoor(int row) {
+        return parse(csvData.get(row)[2]);
+    }
+
+    @Override
+    public float getTotal(int row) {
+        return parse(csvData.get(row)[3]);
+    }
+
+    @Override
+    public float getWater(int row) {
+        return parse(csvData.get(row)[4]);
+    }
+
+    @Override
+    public int getFlags(int row) {
+        final String[] record = csvData.get(row);
+        int flags = 0;
+        if ("TRUE".equals(record[6])) flags |= FLAG_NEXT_INCOMPLETE;
+        if ("TRUE".equals(record[7])) flags |= FLAG_PREVIOUS_INCOMPLETE;
+        return flags;
+    }
+
+    @Override
+    public void append(long timestamp, float indoor, float outdoor, float total, float water, int flags) {
+        String[] record = new String[HEADER.length];
+        record[0] = Long.toString(timestamp / 100);
+        record[1] = format(indoor);
+        record[2] = format(outdoor);
+        record[3] = format(total);
+        record[4] = format(water);
+        record[5] = format(Math.abs(total - water));
+        csvData.add(record);
+        setFlags(csvData.size() - 1, flags);
+    }
+
+    @Override
+    public void setIndoor(int row, float indoor) {
+        csvData.get(row)[1] = format(indoor);
+    }
+
+    @Override
+    public void setFlags(int row, int flags) {
+        final String[] record = csvData.get(row);
+        record[6] = (flags & FLAG_NEXT_INCOMPLETE) != 0 ? "TRUE" : "FALSE";
+        record[7] = (flags & FLAG_PREVIOUS_INCOMPLETE) != 0 ? "TRUE" : "FALSE";
+    }
+
+    @Override
+    public void removeLast() {
+        csvData.remove(csvData.size() - 1);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        FileWriter writer = new FileWriter(cacheCSV);
+        //using custom delimiter and quote character
+        CSVWriter csvWriter = new CSVWriter(writer, ',');
+        csvWriter.writeNext(HEADER);
+        csvWriter.writeAll(csvData, false);
+        csvWriter.close();
+    }
+
+    @Override
+    public void close() {
+        // Nothing is held open between flushes
+    }
+
+    private static float parse(String value) {
+        if (value == null || value.isEmpty()) return Float.NaN;
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+
+    private static String format(float value) {
+        return Float.isNaN(value) ? null : Float.toString(value);
+    }
+}
@@ -0,0 +1,32 @@
+package eu.arrowhead.client.provider.storage;
+
+import java.io.IOException;
+import java.util.ServiceConfigurationError;
+
+/* Storage engines the Predicter can keep the building histories in, selected with the "predicter_storage" property.
+   The columnar engine imports the existing CSV cache of a building the first time it is opened. */
+public enum StorageEngine {
+    CSV {
+        @Override
+        public TimeSeriesStore open(long building) throws IOException {
+            return new CsvTimeSeriesStore(building);
+        }
+    },
+    COLUMNAR {
+        @Override
+        public TimeSeriesStore open(long building) throws IOException {
+            return new ColumnarTimeSeriesStore(building);
+        }
+    };
+
+    public abstract TimeSeriesStore open(long building) throws IOException;
+
+    public static StorageEngine fromProperty(String value) {
+        if (value == null || value.trim().isEmpty()) return CSV;
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ServiceConfigurationError("Unknown predicter_storage: " + value + " (valid values: csv, columnar)", e);
+        }
+    }
+}
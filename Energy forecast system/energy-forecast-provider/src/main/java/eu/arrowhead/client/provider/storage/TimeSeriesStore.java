@@ -0,0 +1,55 @@
+package eu.arrowhead.client.provider.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Per-building history used by the Predicter. Rows are kept in the order they were appended, which is timestamp order
+ * for the hourly data sent by the Outdoor and Indoor providers. Unknown values are stored as {@link Float#NaN}.
+ */
+public interface TimeSeriesStore extends Closeable {
+    int FLAG_NEXT_INCOMPLETE = 1;
+    int FLAG_PREVIOUS_INCOMPLETE = 2;
+
+    int size();
+
+    long getTimestamp(int row);
+
+    float getIndoor(int row);
+
+    float getOutdoor(int row);
+
+    float getTotal(int row);
+
+    float getWater(int row);
+
+    int getFlags(int row);
+
+    void append(long timestamp, float indoor, float outdoor, float total, float water, int flags);
+
+    void setIndoor(int row, float indoor);
+
+    void setFlags(int row, int flags);
+
+    void removeLast();
+
+    /**
+     * Returns the first row whose timestamp is not smaller than the given one, or {@link #size()} if there is none.
+     * Together with {@link #size()} this gives the row range of a [from, to) timestamp interval.
+     */
+    default int lowerBound(long timestamp) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (getTimestamp(mid) < timestamp) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Makes every change since the last flush durable.
+     */
+    void flush() throws IOException;
+}
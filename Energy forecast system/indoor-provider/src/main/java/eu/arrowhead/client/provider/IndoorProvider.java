@@ -12,10 +12,13 @@ package eu.arrowhead.client.provider;
 import eu.arrowhead.client.common.no_need_to_modify.ArrowheadProps;
 import eu.arrowhead.client.common.no_need_to_modify.ArrowheadProvider;
 import eu.arrowhead.client.common.no_need_to_modify.Utility;
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
 import eu.arrowhead.client.common.no_need_to_modify.model.ServiceRegistryEntry;
 
 public class IndoorProvider extends ArrowheadProvider {
 
+  private static final Logger log = Logger.getLogger(IndoorProvider.class);
+
   public static void main(String[] args) {
     new IndoorProvider(args);
   }
@@ -26,7 +29,7 @@ public class IndoorProvider extends ArrowheadProvider {
             new String[] {"eu.arrowhead.client.common"});
 
     ServiceRegistryEntry srEntry = ArrowheadProps.getServiceRegistryEntry(props, baseUri, isSecure, base64PublicKey);
-    System.out.println("Service Registry Entry: " + Utility.toPrettyJson(null, srEntry));
+    log.debug(() -> "Service Registry Entry: " + Utility.toPrettyJson(null, srEntry));
     registerToServiceRegistry(srEntry);
 
     listenForInput();
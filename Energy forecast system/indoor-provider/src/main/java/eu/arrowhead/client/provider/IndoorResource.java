@@ -9,10 +9,10 @@
 
 package eu.arrowhead.client.provider;
 
-import eu.arrowhead.client.common.can_be_modified.SampleData;
-import eu.arrowhead.client.common.can_be_modified.model.Entry;
+import eu.arrowhead.client.common.can_be_modified.misc.BinaryMessageCodec;
+import eu.arrowhead.client.common.can_be_modified.misc.ContinuationToken;
+import eu.arrowhead.client.common.can_be_modified.misc.HourlyMessageOutput;
 import eu.arrowhead.client.common.can_be_modified.model.MeasurementEntry;
-import eu.arrowhead.client.common.can_be_modified.model.Message;
 import eu.arrowhead.client.common.can_be_modified.model.TemperatureReadout;
 import eu.arrowhead.client.common.no_need_to_modify.ArrowheadResource;
 import org.joda.time.DateTime;
@@ -22,10 +22,9 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
-import java.util.ArrayList;
 
 @Path("provider")
-@Produces(MediaType.APPLICATION_JSON)
+@Produces({MediaType.APPLICATION_JSON, BinaryMessageCodec.MEDIA_TYPE})
 //REST service example
 public class IndoorResource extends ArrowheadResource {
 
@@ -35,44 +34,39 @@ public class IndoorResource extends ArrowheadResource {
                           @QueryParam("signature") String signature,
                           @DefaultValue("1") @QueryParam("Building") long building,
                           @DefaultValue("0") @QueryParam("Tstart") long tstart,
-                          @DefaultValue("-1") @QueryParam("Tend") long tend
+                          @DefaultValue("-1") @QueryParam("Tend") long tend,
+                          @DefaultValue("0") @QueryParam("limit") int limit,
+                          @QueryParam(ContinuationToken.QUERY_PARAM) String continuation
     ) {
         final DateTime startOfData = new DateTime(2015, 1, 1, 0, 0);
 
-        if (tend < 0) tend = System.currentTimeMillis() / 1000;
-        if (new DateTime(tstart*1000).isBefore(startOfData))
-            tstart = startOfData.getMillis()/1000;
-        if (new DateTime(tend*1000).isBefore(startOfData))
-            tend = startOfData.getMillis()/1000;
+        if (continuation != null) {
+            // Next page of an earlier query, the range was already checked then
+            final ContinuationToken cursor = ContinuationToken.parse(continuation);
+            tstart = cursor.getNext();
+            tend = cursor.getEnd();
+        } else {
+            if (tend < 0) tend = System.currentTimeMillis() / 1000;
+            if (new DateTime(tstart*1000).isBefore(startOfData))
+                tstart = startOfData.getMillis()/1000;
+            if (new DateTime(tend*1000).isBefore(startOfData))
+                tend = startOfData.getMillis()/1000;
+        }
 
-        long finalTstart = tstart;
-        long finalTend = tend;
-        return verifiedResponse(context, token, signature, () -> {
-            ArrayList<Entry> entries = new ArrayList<>();
+        DateTime start = new DateTime(tstart *1000);
+        if (start.getSecondOfMinute() > 0 || start.getMinuteOfHour() > 0)
+            start = start.plusHours(1);
+        start = start.withMinuteOfHour(0).withSecondOfMinute(0);
 
-            DateTime start = new DateTime(finalTstart *1000);
-            if (start.getSecondOfMinute() > 0 || start.getMinuteOfHour() > 0)
-                start = start.plusHours(1);
-            start = start.withMinuteOfHour(0).withSecondOfMinute(0);
-
-            for (long ts = start.getMillis()/1000; ts < finalTend; ts += 3600) {
-                Entry entry = new Entry();
-                entry.setBuilding(building);
-                entry.setTimestamp(ts);
-                entry.setInTemp(SampleData.getIndoor(ts));
-
-                entries.add(entry);
-            }
-
-            Message response = new Message();
-            if (entries.size() > 0) {
-                response.setTstart(entries.get(0).getTimestamp());
-                response.setTend(entries.get(entries.size() - 1).getTimestamp());
-            }
-            response.setEntries(entries);
-
-            return response;
+        // The entries are serialized while they are generated (only when the request is verified), at most limit of them
+        final HourlyMessageOutput output = new HourlyMessageOutput(building, start.getMillis()/1000, tend, limit, (entry, hour) -> {
+            entry.setInTemp(hour.getIndoor());
         });
+
+        final Response response = verifiedResponse(context, token, signature, output);
+        final ContinuationToken next = output.getContinuation();
+        if (next == null || response.getStatus() != 200) return response;
+        return Response.fromResponse(response).header(ContinuationToken.HEADER, next.toString()).build();
     }
 
 }
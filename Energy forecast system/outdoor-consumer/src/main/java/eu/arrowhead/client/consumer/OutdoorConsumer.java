@@ -14,6 +14,7 @@ import eu.arrowhead.client.common.can_be_modified.model.TemperatureReadout;
 import eu.arrowhead.client.common.no_need_to_modify.ArrowheadConsumer;
 import eu.arrowhead.client.common.no_need_to_modify.Orchestrator;
 import eu.arrowhead.client.common.no_need_to_modify.Utility;
+import eu.arrowhead.client.common.no_need_to_modify.log.Logger;
 import eu.arrowhead.client.common.no_need_to_modify.model.ArrowheadService;
 import eu.arrowhead.client.common.no_need_to_modify.model.ServiceRequestForm;
 
@@ -24,6 +25,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class OutdoorConsumer extends ArrowheadConsumer {
+    private static final Logger log = Logger.getLogger(OutdoorConsumer.class);
+
     private OutdoorConsumer(String[] args) {
         // SystemName can be an arbitrarily chosen name, which makes sense for the use case.
         super(args, "client1");
@@ -42,7 +45,7 @@ public class OutdoorConsumer extends ArrowheadConsumer {
 
         // Printing out the elapsed time during the orchestration and service consumption
         long endTime = System.currentTimeMillis();
-        System.out.println("Orchestration and Service consumption response time: " + Long.toString(endTime - startTime));
+        log.info("Orchestration and Service consumption response time: " + Long.toString(endTime - startTime));
     }
 
     public static void main(String[] args) {
@@ -100,14 +103,15 @@ public class OutdoorConsumer extends ArrowheadConsumer {
       from the Orchestrator are parsed this way.
      */
         try {
-            readout = Utility.requestEntity("GET", providerUrl, null, Message.class);
-            System.out.println("Provider Response payload: " + Utility.toPrettyJson(null, readout));
+            final Message response = Utility.requestEntity("GET", providerUrl, null, Message.class);
+            log.debug(() -> "Provider Response payload: " + Utility.toPrettyJson(null, response));
+            readout = response;
         } catch (RuntimeException ignored) {
         }
 
         if (readout != null) {
             final String string = "Got " + readout.getEntry().size() + " entries.";
-            System.out.println(string);
+            log.info(string);
             JLabel label = new JLabel(string);
             label.setFont(new Font("Arial", Font.BOLD, 18));
             JOptionPane.showMessageDialog(null, label,"Provider Response", JOptionPane.INFORMATION_MESSAGE);
@@ -11,6 +11,9 @@ package eu.arrowhead.client.common;
 
 import eu.arrowhead.client.common.exception.ArrowheadException;
 import eu.arrowhead.client.common.exception.AuthException;
+import eu.arrowhead.client.common.log.LogLevel;
+import eu.arrowhead.client.common.log.Logger;
+import eu.arrowhead.client.common.metrics.RequestMetrics;
 import eu.arrowhead.client.common.misc.ClientType;
 import eu.arrowhead.client.common.misc.SecurityUtils;
 import eu.arrowhead.client.common.misc.TypeSafeProperties;
@@ -45,6 +48,8 @@ import org.glassfish.jersey.server.ResourceConfig;
  */
 public abstract class ArrowheadClientMain {
 
+  private static final Logger log = Logger.getLogger(ArrowheadClientMain.class);
+
   protected boolean isSecure;
   protected String baseUri;
   protected String base64PublicKey;
@@ -55,7 +60,7 @@ public abstract class ArrowheadClientMain {
   private ClientType clientType;
 
   protected void init(ClientType client, String[] args, Set<Class<?>> classes, String[] packages) {
-    System.out.println("Working directory: " + System.getProperty("user.dir"));
+    log.info("Working directory: " + System.getProperty("user.dir"));
     clientType = client;
     System.setProperty("client_type", clientType.toString());
 
@@ -63,11 +68,12 @@ public abstract class ArrowheadClientMain {
       switch (arg) {
         case "-daemon":
           daemon = true;
-          System.out.println("Starting server as daemon!");
+          log.info("Starting server as daemon!");
           break;
         case "-d":
           System.setProperty("debug_mode", "true");
-          System.out.println("Starting server in debug mode!");
+          Logger.setLevel(LogLevel.DEBUG);
+          log.info("Starting server in debug mode!");
           break;
         case "-tls":
           isSecure = true;
@@ -93,13 +99,13 @@ public abstract class ArrowheadClientMain {
 
   protected void listenForInput() {
     if (daemon) {
-      System.out.println("In daemon mode, process will terminate for TERM signal...");
+      log.info("In daemon mode, process will terminate for TERM signal...");
       Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-        System.out.println("Received TERM signal, shutting down...");
+        log.info("Received TERM signal, shutting down...");
         shutdown();
       }));
     } else {
-      System.out.println("Type \"stop\" to shutdown " + clientType + " Server...");
+      log.info("Type \"stop\" to shutdown " + clientType + " Server...");
       BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
       String input = "";
       try {
@@ -108,7 +114,7 @@ public abstract class ArrowheadClientMain {
         }
         br.close();
       } catch (IOException e) {
-        e.printStackTrace();
+        log.error("Reading the console input failed", e);
       }
       shutdown();
     }
@@ -118,13 +124,14 @@ public abstract class ArrowheadClientMain {
     final ResourceConfig config = new ResourceConfig();
     config.registerClasses(classes);
     config.packages(packages);
+    configureMetrics(config);
 
     URI uri = UriBuilder.fromUri(baseUri).build();
     try {
       server = GrizzlyHttpServerFactory.createHttpServer(uri, config, false);
       server.getServerConfiguration().setAllowPayloadForUndefinedHttpMethods(true);
       server.start();
-      System.out.println("Started insecure server at: " + baseUri);
+      log.info("Started insecure server at: " + baseUri);
     } catch (IOException | ProcessingException e) {
       throw new ServiceConfigurationError("Make sure you gave a valid address in the config file! (Assignable to this JVM and not in use already)",
                                           e);
@@ -135,6 +142,7 @@ public abstract class ArrowheadClientMain {
     final ResourceConfig config = new ResourceConfig();
     config.registerClasses(classes);
     config.packages(packages);
+    configureMetrics(config);
 
     SSLContextConfigurator sslCon = new SSLContextConfigurator();
     sslCon.setKeyStoreFile(props.getProperty("keystore"));
@@ -146,7 +154,7 @@ public abstract class ArrowheadClientMain {
     try {
       sslContext = sslCon.createSSLContext(true);
     } catch (GenericStoreException e) {
-      System.out.println("Provided SSLContext is not valid, moving to certificate bootstrapping.");
+      log.warn("Provided SSLContext is not valid, moving to certificate bootstrapping.");
       try {
         sslCon = CertificateBootstrapper.bootstrap(clientType, props.getProperty("secure_system_name"));
       } catch (ArrowheadException e1) {
@@ -160,7 +168,7 @@ public abstract class ArrowheadClientMain {
     KeyStore keyStore = SecurityUtils.loadKeyStore(props.getProperty("keystore"), props.getProperty("keystorepass"));
     X509Certificate serverCert = SecurityUtils.getFirstCertFromKeyStore(keyStore);
     base64PublicKey = Base64.getEncoder().encodeToString(serverCert.getPublicKey().getEncoded());
-    System.out.println("Server PublicKey Base64: " + base64PublicKey);
+    log.info("Server PublicKey Base64: " + base64PublicKey);
     String serverCN = SecurityUtils.getCertCNFromSubject(serverCert.getSubjectDN().getName());
     if (!SecurityUtils.isKeyStoreCNArrowheadValid(serverCN)) {
       throw new AuthException(
@@ -175,18 +183,27 @@ public abstract class ArrowheadClientMain {
           .createHttpServer(uri, config, true, new SSLEngineConfigurator(sslCon).setClientMode(false).setNeedClientAuth(true), false);
       server.getServerConfiguration().setAllowPayloadForUndefinedHttpMethods(true);
       server.start();
-      System.out.println("Started secure server at: " + baseUri);
+      log.info("Started secure server at: " + baseUri);
     } catch (IOException | ProcessingException e) {
       throw new ServiceConfigurationError("Make sure you gave a valid address in the config file! (Assignable to this JVM and not in use already)",
                                           e);
     }
   }
 
+  //Request metrics (GET /metrics in Prometheus format + JMX beans), if they are enabled in the config
+  private void configureMetrics(ResourceConfig config) {
+    if (props.getBooleanProperty("metrics_enabled", false)) {
+      RequestMetrics.register(config);
+      log.info("Request metrics are available at: " + UriBuilder.fromUri(baseUri).path("metrics").toString());
+    }
+  }
+
   protected void shutdown() {
     if (server != null) {
       server.shutdownNow();
     }
-    System.out.println(clientType + " Server stopped");
+    log.info(clientType + " Server stopped");
+    Logger.flush(2000);
     System.exit(0);
   }
 }
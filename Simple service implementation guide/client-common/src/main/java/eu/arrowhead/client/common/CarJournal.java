@@ -0,0 +1,483 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common;
+
+import eu.arrowhead.client.common.exception.ArrowheadException;
+import eu.arrowhead.client.common.log.Logger;
+import eu.arrowhead.client.common.model.Car;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/* Write-ahead log and snapshots of a CarRepository, in a directory:
+    - cars-<generation>.wal files: every change of a car (its new state or its removal) is appended as a checksummed record.
+      A single thread writes the records and syncs the file, and a change only returns after its record is synced. Records
+      arriving during a sync are written together with the next one (group commit), so concurrent changes share the fsyncs.
+    - cars.snapshot: all the cars, with the log generation the replay has to start from. Taking a snapshot switches to a new
+      log file, writes the snapshot next to it, then deletes the older log files. Since the records hold the new state of a
+      car (not a difference), replaying changes that are also in the snapshot does not matter.
+   Loading reads the snapshot, then replays the newer log files until their first incomplete or corrupt record (a write the
+   crash interrupted, which was never acknowledged). */
+final class CarJournal implements Closeable {
+
+  private static final Logger logger = Logger.getLogger(CarJournal.class);
+
+  private static final String SNAPSHOT_FILE = "cars.snapshot";
+  private static final String LOG_PREFIX = "cars-";
+  private static final String LOG_SUFFIX = ".wal";
+  private static final int SNAPSHOT_MAGIC = 0x43415253;
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 2;
+
+  private final Path directory;
+  private final CarRepository repository;
+  //Changes hold the read lock while they are logged and applied, taking the write lock makes sure they are all in the map
+  private final ReentrantReadWriteLock changes = new ReentrantReadWriteLock();
+  private final Object snapshotLock = new Object();
+  private final ScheduledExecutorService snapshotter;
+  private final Thread flusher;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition recordsPending = lock.newCondition();
+  private final Condition recordsSynced = lock.newCondition();
+  //Guarded by lock
+  private FileChannel log;
+  private long generation;
+  private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+  private long appended; //Sequence number of the last appended record
+  private long synced; //Sequence number of the last record written to the disk
+  private long snapshotted; //Sequence number of the last record before the last snapshot
+  private byte[] previousLogTail; //Records of the previous log file, which still have to be written before switching to the next one
+  private long previousLogEnd;
+  private FileChannel nextLog;
+  private IOException failure;
+  private boolean closed;
+
+  private CarJournal(Path directory, CarRepository repository, long generation, int snapshotInterval) throws IOException {
+    this.directory = directory;
+    this.repository = repository;
+    this.generation = generation;
+    this.log = openLog(generation);
+
+    flusher = new Thread(this::flushRecords, "car-store-flusher");
+    flusher.setDaemon(true);
+    flusher.start();
+
+    snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "car-store-snapshotter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    if (snapshotInterval > 0) {
+      snapshotter.scheduleWithFixedDelay(this::snapshotIfChanged, snapshotInterval, snapshotInterval, TimeUnit.SECONDS);
+    }
+  }
+
+  //Loads the saved cars into the (empty) repository, and starts logging to a new log file
+  static CarJournal open(Path directory, CarRepository repository, int snapshotInterval) throws IOException {
+    Files.createDirectories(directory);
+    long start = System.currentTimeMillis();
+    long snapshotGeneration = loadSnapshot(directory.resolve(SNAPSHOT_FILE), repository);
+
+    List<Long> logGenerations = logGenerations(directory);
+    long lastGeneration = snapshotGeneration;
+    int replayed = 0;
+    for (long logGeneration : logGenerations) {
+      if (logGeneration >= snapshotGeneration) {
+        replayed += replay(directory.resolve(logFileName(logGeneration)), repository);
+      }
+      lastGeneration = Math.max(lastGeneration, logGeneration);
+    }
+    logger.info("Car store loaded " + repository.size() + " cars (" + replayed + " logged changes) from " + directory + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+
+    CarJournal journal = new CarJournal(directory, repository, lastGeneration + 1, snapshotInterval);
+    if (!logGenerations.isEmpty()) {
+      //Compacting the replayed logs, so the next start does not have to replay them again
+      journal.snapshot();
+    }
+    return journal;
+  }
+
+  void beginChange() {
+    changes.readLock().lock();
+  }
+
+  void endChange() {
+    changes.readLock().unlock();
+  }
+
+  //Appends the new state of a car (null if it was removed) to the log, returns the sequence number of the record
+  long append(int id, Car car) {
+    byte[] record = encode(id, car);
+    lock.lock();
+    try {
+      checkUsable();
+      pending.write(record, 0, record.length);
+      appended++;
+      recordsPending.signal();
+      return appended;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  //Waits until the given record (and every record before it) is synced to the disk
+  void awaitSynced(long sequence) {
+    lock.lock();
+    try {
+      while (synced < sequence) {
+        //Closing does not matter here, the records appended before it are still written
+        checkWritable();
+        recordsSynced.awaitUninterruptibly();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  //Writes the current state of the repository to the snapshot file, and deletes the log files it makes unnecessary
+  void snapshot() throws IOException {
+    synchronized (snapshotLock) {
+      long snapshotGeneration;
+      changes.writeLock().lock();
+      try {
+        snapshotGeneration = switchLog();
+      } finally {
+        changes.writeLock().unlock();
+      }
+
+      Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+      try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+        CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file), new CRC32());
+        DataOutputStream out = new DataOutputStream(checked);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeLong(snapshotGeneration);
+        out.writeInt(repository.nextId());
+        for (Map.Entry<Integer, Car> entry : repository.storedCars().entrySet()) {
+          out.writeBoolean(true);
+          out.writeInt(entry.getKey());
+          writeString(out, entry.getValue().getBrand());
+          writeString(out, entry.getValue().getColor());
+        }
+        out.writeBoolean(false);
+        out.writeLong(checked.getChecksum().getValue());
+        out.flush();
+        file.getFD().sync();
+      }
+      Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      syncDirectory();
+
+      for (long logGeneration : logGenerations(directory)) {
+        if (logGeneration < snapshotGeneration) {
+          Files.deleteIfExists(directory.resolve(logFileName(logGeneration)));
+        }
+      }
+    }
+  }
+
+  //Takes a last snapshot, then waits until the pending records are written
+  @Override
+  public void close() throws IOException {
+    snapshotter.shutdownNow();
+    try {
+      snapshot();
+    } finally {
+      lock.lock();
+      try {
+        closed = true;
+        recordsPending.signal();
+      } finally {
+        lock.unlock();
+      }
+      try {
+        flusher.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      log.close();
+    }
+  }
+
+  private void snapshotIfChanged() {
+    lock.lock();
+    try {
+      if (appended == snapshotted) {
+        return;
+      }
+    } finally {
+      lock.unlock();
+    }
+    try {
+      snapshot();
+    } catch (IOException | RuntimeException e) {
+      logger.error("Car store snapshot failed!", e);
+    }
+  }
+
+  //Starts a new log generation for the records appended from now on, returns the new generation
+  private long switchLog() throws IOException {
+    lock.lock();
+    try {
+      checkUsable();
+      while (previousLogTail != null) {
+        recordsSynced.awaitUninterruptibly();
+        checkUsable();
+      }
+      nextLog = openLog(generation + 1);
+      previousLogTail = pending.toByteArray();
+      previousLogEnd = appended;
+      pending = new ByteArrayOutputStream();
+      snapshotted = appended;
+      generation++;
+      recordsPending.signal();
+      return generation;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  //Body of the flusher thread: writes and syncs everything that was appended during the previous write
+  private void flushRecords() {
+    try {
+      while (true) {
+        FileChannel channel;
+        byte[] records;
+        long lastRecord;
+        FileChannel switchTo = null;
+        lock.lock();
+        try {
+          while (previousLogTail == null && pending.size() == 0 && !closed) {
+            recordsPending.awaitUninterruptibly();
+          }
+          channel = log;
+          if (previousLogTail != null) {
+            records = previousLogTail;
+            lastRecord = previousLogEnd;
+            switchTo = nextLog;
+          } else if (pending.size() > 0) {
+            records = pending.toByteArray();
+            lastRecord = appended;
+            pending.reset();
+          } else {
+            return;
+          }
+        } finally {
+          lock.unlock();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(records);
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(false);
+
+        lock.lock();
+        try {
+          if (switchTo != null) {
+            channel.close();
+            log = switchTo;
+            nextLog = null;
+            previousLogTail = null;
+          }
+          synced = lastRecord;
+          recordsSynced.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      }
+    } catch (IOException e) {
+      logger.error("Car store log can not be written, further changes will fail!", e);
+      lock.lock();
+      try {
+        failure = e;
+        recordsSynced.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private void checkUsable() {
+    checkWritable();
+    if (closed) {
+      throw new ArrowheadException("The car store is closed!", 500);
+    }
+  }
+
+  private void checkWritable() {
+    if (failure != null) {
+      throw new ArrowheadException("The change could not be saved, writing the car store log failed!", 500, failure);
+    }
+  }
+
+  private FileChannel openLog(long logGeneration) throws IOException {
+    return FileChannel.open(directory.resolve(logFileName(logGeneration)), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                            StandardOpenOption.APPEND);
+  }
+
+  //Makes the snapshot rename durable (not supported on every platform, the rename is still atomic there)
+  private void syncDirectory() {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException ignored) {
+    }
+  }
+
+  //Record: length and CRC32 of the payload, then the payload (operation, ID, brand and color for PUT)
+  private static byte[] encode(int id, Car car) {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+    try (DataOutputStream out = new DataOutputStream(payload)) {
+      out.writeByte(car == null ? REMOVE : PUT);
+      out.writeInt(id);
+      if (car != null) {
+        writeString(out, car.getBrand());
+        writeString(out, car.getColor());
+      }
+    } catch (IOException e) {
+      throw new AssertionError("Writing to a byte array can not fail", e);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(payload.toByteArray());
+    return ByteBuffer.allocate(8 + payload.size()).putInt(payload.size()).putInt((int) crc.getValue()).put(payload.toByteArray()).array();
+  }
+
+  //Returns the number of changes replayed
+  private static int replay(Path logFile, CarRepository repository) throws IOException {
+    int replayed = 0;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile), 1 << 16))) {
+      while (true) {
+        byte[] payload;
+        int checksum;
+        try {
+          int length = in.readInt();
+          checksum = in.readInt();
+          if (length < 5 || length > (1 << 20)) {
+            break;
+          }
+          payload = new byte[length];
+          in.readFully(payload);
+        } catch (EOFException e) {
+          break;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+          break;
+        }
+
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+        byte operation = record.readByte();
+        int id = record.readInt();
+        if (operation == PUT) {
+          repository.put(id, new Car(readString(record), readString(record)));
+        } else {
+          repository.remove(id);
+        }
+        replayed++;
+      }
+    }
+    return replayed;
+  }
+
+  //Returns the log generation the replay has to start from (0 if there is no snapshot yet)
+  private static long loadSnapshot(Path snapshotFile, CarRepository repository) throws IOException {
+    if (!Files.exists(snapshotFile)) {
+      return 0;
+    }
+    try (InputStream file = new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16)) {
+      CheckedInputStream checked = new CheckedInputStream(file, new CRC32());
+      DataInputStream in = new DataInputStream(checked);
+      if (in.readInt() != SNAPSHOT_MAGIC) {
+        throw new IOException(snapshotFile + " is not a car store snapshot!");
+      }
+      long snapshotGeneration = in.readLong();
+      int nextId = in.readInt();
+      while (in.readBoolean()) {
+        int id = in.readInt();
+        repository.put(id, new Car(readString(in), readString(in)));
+      }
+      long checksum = checked.getChecksum().getValue();
+      if (new DataInputStream(file).readLong() != checksum) {
+        throw new IOException(snapshotFile + " is corrupt (checksum mismatch)!");
+      }
+      repository.restoreNextId(nextId);
+      return snapshotGeneration;
+    }
+  }
+
+  private static List<Long> logGenerations(Path directory) throws IOException {
+    List<Long> generations = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, LOG_PREFIX + "*" + LOG_SUFFIX)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        try {
+          generations.add(Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length())));
+        } catch (NumberFormatException ignored) {
+        }
+      }
+    }
+    Collections.sort(generations);
+    return generations;
+  }
+
+  private static String logFileName(long logGeneration) {
+    return LOG_PREFIX + logGeneration + LOG_SUFFIX;
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,285 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common;
+
+import eu.arrowhead.client.common.log.Logger;
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+import eu.arrowhead.client.common.model.Car;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.ServiceConfigurationError;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* Thread-safe in-memory store of the cars used by the RestResource examples. IDs come from an atomic counter, so concurrent
+   inserts never get the same ID, and the cars are indexed by brand and color, so the filtered queries only look at the
+   matching cars instead of scanning the whole store. Every change of a car and its index entries happens while the map
+   entry of its ID is locked (ConcurrentHashMap.compute), so concurrent changes of the same car can not leave stale index
+   entries behind. The cars are copied on the way in and out, so they can only be changed through the repository (keeping
+   the indexes and the journal up to date). Optionally the changes are also logged to the disk (see CarJournal), so the cars survive a restart. */
+public class CarRepository {
+
+  private static final Logger logger = Logger.getLogger(CarRepository.class);
+
+  private final AtomicInteger idCounter = new AtomicInteger();
+  private final ConcurrentHashMap<Integer, Car> cars = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Set<Integer>> idsByBrand = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Set<Integer>> idsByColor = new ConcurrentHashMap<>();
+  private CarJournal journal;
+
+  //Creates an empty, in-memory only repository
+  public CarRepository() {
+  }
+
+  /*
+    Creates a repository which keeps its cars in the given directory: loads the cars saved there, and every change returns
+    only after it was written to the disk. Snapshots are taken every snapshotInterval seconds (0 disables the periodic ones).
+   */
+  public static CarRepository open(Path directory, int snapshotInterval) throws IOException {
+    CarRepository repository = new CarRepository();
+    repository.journal = CarJournal.open(directory, repository, snapshotInterval);
+    return repository;
+  }
+
+  /*
+    Creates the repository configured by the car_store_dir and car_store_snapshot_interval properties: an in-memory one if
+    the directory is not set, otherwise a persistent one, which is closed when the JVM shuts down.
+   */
+  public static CarRepository fromConfig(TypeSafeProperties props) {
+    String directory = props.getProperty("car_store_dir", "");
+    if (directory.trim().isEmpty()) {
+      return new CarRepository();
+    }
+    try {
+      CarRepository repository = open(Paths.get(directory.trim()), props.getIntProperty("car_store_snapshot_interval", 300));
+      Runtime.getRuntime().addShutdownHook(new Thread(repository::close, "car-store-shutdown"));
+      return repository;
+    } catch (IOException e) {
+      throw new ServiceConfigurationError("Loading the car store from " + directory + " failed!", e);
+    }
+  }
+
+  public Car get(int id) {
+    Car car = cars.get(id);
+    return car == null ? null : copy(car);
+  }
+
+  //Saves the car with a new ID, and returns the ID
+  public int add(Car car) {
+    int id = idCounter.getAndIncrement();
+    put(id, car);
+    return id;
+  }
+
+  //Saves the car with the given ID, replacing the car saved with it before (returned, or null if there was none)
+  public Car put(int id, Car car) {
+    Car stored = copy(car);
+    Car[] previous = new Car[1];
+    long[] record = new long[1];
+    beginChange();
+    try {
+      cars.compute(id, (key, old) -> {
+        record[0] = log(id, stored);
+        previous[0] = old;
+        unindex(id, old);
+        index(id, stored);
+        return stored;
+      });
+    } finally {
+      endChange();
+    }
+    //Keeping the counter ahead of the explicitly given IDs, so add does not overwrite them
+    idCounter.accumulateAndGet(id + 1, Math::max);
+    awaitLogged(record[0]);
+    return previous[0];
+  }
+
+  //Replaces an existing car, returns false (without saving the car) if there is no car with the given ID
+  public boolean replace(int id, Car car) {
+    Car stored = copy(car);
+    long[] record = new long[1];
+    boolean replaced;
+    beginChange();
+    try {
+      replaced = cars.computeIfPresent(id, (key, old) -> {
+        record[0] = log(id, stored);
+        unindex(id, old);
+        index(id, stored);
+        return stored;
+      }) != null;
+    } finally {
+      endChange();
+    }
+    awaitLogged(record[0]);
+    return replaced;
+  }
+
+  //Removes the car with the given ID, and returns it (or null if there was none)
+  public Car remove(int id) {
+    Car[] removed = new Car[1];
+    long[] record = new long[1];
+    beginChange();
+    try {
+      cars.computeIfPresent(id, (key, old) -> {
+        record[0] = log(id, null);
+        removed[0] = old;
+        unindex(id, old);
+        return null;
+      });
+    } finally {
+      endChange();
+    }
+    awaitLogged(record[0]);
+    return removed[0];
+  }
+
+  //Returns the cars with the given brand and color (ordered by their IDs), null parameters match every car
+  public List<Car> find(String brand, String color) {
+    Set<Integer> ids;
+    if (brand == null && color == null) {
+      List<Car> result = new ArrayList<>(cars.size());
+      for (Car car : new TreeMap<>(cars).values()) {
+        result.add(copy(car));
+      }
+      return result;
+    } else if (brand == null) {
+      ids = idsByColor.getOrDefault(color, Collections.emptySet());
+    } else if (color == null) {
+      ids = idsByBrand.getOrDefault(brand, Collections.emptySet());
+    } else {
+      //Looking up the cars of the smaller index set, the other condition is checked on the cars themselves
+      Set<Integer> brandIds = idsByBrand.getOrDefault(brand, Collections.emptySet());
+      Set<Integer> colorIds = idsByColor.getOrDefault(color, Collections.emptySet());
+      ids = brandIds.size() <= colorIds.size() ? brandIds : colorIds;
+    }
+
+    List<Car> result = new ArrayList<>(ids.size());
+    for (Integer id : new TreeSet<>(ids)) {
+      //The car could have changed since the index lookup, so the conditions are checked again
+      Car car = cars.get(id);
+      if (car != null && (brand == null || brand.equals(car.getBrand())) && (color == null || color.equals(car.getColor()))) {
+        result.add(copy(car));
+      }
+    }
+    return result;
+  }
+
+  //Read-only copy of all the cars, with their IDs (ordered by the IDs)
+  public Map<Integer, Car> asMap() {
+    Map<Integer, Car> copies = new TreeMap<>();
+    cars.forEach((id, car) -> copies.put(id, copy(car)));
+    return Collections.unmodifiableMap(copies);
+  }
+
+  public int size() {
+    return cars.size();
+  }
+
+  //Takes a last snapshot of a persistent repository, and stops its background threads (does nothing for in-memory ones)
+  public void close() {
+    if (journal != null) {
+      try {
+        journal.close();
+      } catch (IOException e) {
+        logger.error("Closing the car store failed!", e);
+      }
+    }
+  }
+
+  //The stored cars themselves, for the snapshots of the journal, which only read them
+  Map<Integer, Car> storedCars() {
+    return Collections.unmodifiableMap(cars);
+  }
+
+  int nextId() {
+    return idCounter.get();
+  }
+
+  void restoreNextId(int nextId) {
+    idCounter.accumulateAndGet(nextId, Math::max);
+  }
+
+  //The change is logged while the ID is locked, so the log has the changes of a car in the order they were applied
+  private long log(int id, Car car) {
+    return journal == null ? 0 : journal.append(id, car);
+  }
+
+  private void beginChange() {
+    if (journal != null) {
+      journal.beginChange();
+    }
+  }
+
+  private void endChange() {
+    if (journal != null) {
+      journal.endChange();
+    }
+  }
+
+  //Waits outside of the locks, so the changes of other cars can be logged meanwhile and synced together
+  private void awaitLogged(long record) {
+    if (record > 0) {
+      journal.awaitSynced(record);
+    }
+  }
+
+  //Storing and returning copies, so the callers changing their car objects later do not make the indexes stale
+  private static Car copy(Car car) {
+    Objects.requireNonNull(car, "Car can not be null");
+    return new Car(car.getBrand(), car.getColor());
+  }
+
+  private void index(int id, Car car) {
+    if (car.getBrand() != null) {
+      addToIndex(idsByBrand, car.getBrand(), id);
+    }
+    if (car.getColor() != null) {
+      addToIndex(idsByColor, car.getColor(), id);
+    }
+  }
+
+  private void unindex(int id, Car car) {
+    if (car == null) {
+      return;
+    }
+    if (car.getBrand() != null) {
+      removeFromIndex(idsByBrand, car.getBrand(), id);
+    }
+    if (car.getColor() != null) {
+      removeFromIndex(idsByColor, car.getColor(), id);
+    }
+  }
+
+  private static void addToIndex(ConcurrentHashMap<String, Set<Integer>> index, String value, int id) {
+    index.compute(value, (key, ids) -> {
+      if (ids == null) {
+        ids = ConcurrentHashMap.newKeySet();
+      }
+      ids.add(id);
+      return ids;
+    });
+  }
+
+  private static void removeFromIndex(ConcurrentHashMap<String, Set<Integer>> index, String value, int id) {
+    index.computeIfPresent(value, (key, ids) -> {
+      ids.remove(id);
+      return ids.isEmpty() ? null : ids;
+    });
+  }
+}
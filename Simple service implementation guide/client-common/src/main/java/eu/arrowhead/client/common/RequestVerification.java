@@ -0,0 +1,180 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common;
+
+import eu.arrowhead.client.common.exception.ArrowheadException;
+import eu.arrowhead.client.common.exception.AuthException;
+import eu.arrowhead.client.common.misc.SecurityUtils;
+import eu.arrowhead.client.common.model.RawTokenInfo;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.crypto.Cipher;
+import javax.ws.rs.core.SecurityContext;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+/* Verifies the authorization tokens of the requests a secure provider receives. Consumers keep using the same token until
+   it expires, so a token that passed the verification is remembered (together with its signature and the subject of the
+   client certificate) until its expiry, and the RSA operations are only done once per token. At most "cacheSize" tokens
+   are remembered (the least recently used ones are dropped first), 0 disables the cache. */
+public class RequestVerification {
+
+  static {
+    Security.addProvider(new BouncyCastleProvider());
+  }
+
+  private final PublicKey authorizationKey;
+  private final PrivateKey privateKey;
+  private final Map<String, Long> verified; // Key -> expiry (ms)
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final ThreadLocal<Signature> signatures = new ThreadLocal<>();
+  private final ThreadLocal<Cipher> ciphers = new ThreadLocal<>();
+
+  public RequestVerification(PublicKey authorizationKey, PrivateKey privateKey, int cacheSize) {
+    this.authorizationKey = authorizationKey;
+    this.privateKey = privateKey;
+    this.verified = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+        return size() > cacheSize;
+      }
+    };
+  }
+
+  /*
+    Based on the local Authorization public key and provider private key, this method verifies that the provided token/signature pair
+    was created by the Authorization Core System with the provider public key. It also checks if the token expired or not, plus the token
+    has to contain the same consumer name as the common name field of the client certificate.
+   */
+  public void verifyRequester(SecurityContext context, String token, String signature) {
+    try {
+      String subject = context.getUserPrincipal().getName();
+      if (token.contains(" ")) {
+        token = token.replaceAll("\\s", "+");
+      }
+      if (signature.contains(" ")) {
+        signature = signature.replaceAll("\\s", "+");
+      }
+
+      //The certificate subject is part of the key, so the common name only has to be parsed for new tokens
+      String key = subject + "|" + token + "|" + signature;
+      if (isVerified(key)) {
+        hits.increment();
+        return;
+      }
+      misses.increment();
+
+      String commonName = SecurityUtils.getCertCNFromSubject(subject);
+      String[] commonNameParts = commonName.split("\\.");
+      String consumerName = commonNameParts[0];
+
+      byte[] tokenbytes = Base64.getDecoder().decode(token);
+      byte[] signaturebytes = Base64.getDecoder().decode(signature);
+
+      if (!verifySignature(tokenbytes, signaturebytes)) {
+        throw new AuthException("Authorization core system signature verification failed!");
+      }
+
+      //Check if the provider public key registered in the database is the same as the one used by the provider at the moment
+      byte[] byteToken = decrypt(tokenbytes);
+
+      String json = new String(byteToken, StandardCharsets.UTF_8);
+      RawTokenInfo rawTokenInfo = Utility.fromJson(json, RawTokenInfo.class);
+      String[] rawTokenInfoParts = rawTokenInfo.getC().split("\\.");
+      String consumerTokenName = rawTokenInfoParts[0];
+
+      long endTime = rawTokenInfo.getE();
+      long currentTime = System.currentTimeMillis();
+
+      if (consumerName.equalsIgnoreCase(consumerTokenName)) {
+        if (endTime == 0L || (endTime > currentTime)) {
+          synchronized (verified) {
+            verified.put(key, endTime == 0L ? Long.MAX_VALUE : endTime);
+          }
+          return;
+        }
+        throw new AuthException("Given token has expired!");
+
+      } else {
+        throw new AuthException("Cert common name and token information are mismatched!");
+      }
+
+    } catch (AuthException ex) {
+      throw ex;
+    } catch (Exception ex) {
+      throw new ArrowheadException("Internal Server Error during token validation!", 500, ex);
+    }
+  }
+
+  //Number of requests verified from the cache
+  public long getHits() {
+    return hits.sum();
+  }
+
+  //Number of requests which needed the RSA operations (including the rejected ones)
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  private boolean isVerified(String key) {
+    synchronized (verified) {
+      Long expiry = verified.get(key);
+      if (expiry == null) {
+        return false;
+      }
+      if (expiry > System.currentTimeMillis()) {
+        return true;
+      }
+      verified.remove(key);
+      return false;
+    }
+  }
+
+  //Every thread keeps its own initialized Signature and Cipher, they are reset to the initialized state after each use
+  private boolean verifySignature(byte[] data, byte[] signatureBytes) throws GeneralSecurityException {
+    Signature signatureInstance = signatures.get();
+    if (signatureInstance == null) {
+      signatureInstance = Signature.getInstance("SHA256withRSA", "BC");
+      signatureInstance.initVerify(authorizationKey);
+      signatures.set(signatureInstance);
+    }
+    try {
+      signatureInstance.update(data);
+      return signatureInstance.verify(signatureBytes);
+    } catch (GeneralSecurityException | RuntimeException e) {
+      //The state is undefined after a failure, the next request initializes a new instance
+      signatures.remove();
+      throw e;
+    }
+  }
+
+  private byte[] decrypt(byte[] data) throws GeneralSecurityException {
+    Cipher cipher = ciphers.get();
+    if (cipher == null) {
+      cipher = Cipher.getInstance("RSA/NONE/PKCS1Padding", "BC");
+      cipher.init(Cipher.DECRYPT_MODE, privateKey);
+      ciphers.set(cipher);
+    }
+    try {
+      return cipher.doFinal(data);
+    } catch (GeneralSecurityException | RuntimeException e) {
+      ciphers.remove();
+      throw e;
+    }
+  }
+}
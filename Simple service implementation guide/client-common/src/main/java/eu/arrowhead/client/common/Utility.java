@@ -17,7 +17,11 @@ import eu.arrowhead.client.common.exception.DataNotFoundException;
 import eu.arrowhead.client.common.exception.DnsException;
 import eu.arrowhead.client.common.exception.DuplicateEntryException;
 import eu.arrowhead.client.common.exception.ErrorMessage;
+import eu.arrowhead.client.common.exception.ExceptionType;
 import eu.arrowhead.client.common.exception.UnavailableServerException;
+import eu.arrowhead.client.common.log.Logger;
+import eu.arrowhead.client.common.metrics.CallMetrics;
+import eu.arrowhead.client.common.metrics.CallMetricsRegistry;
 import eu.arrowhead.client.common.misc.JacksonJsonProviderAtRest;
 import eu.arrowhead.client.common.misc.PasswordGenerator;
 import eu.arrowhead.client.common.misc.TypeSafeProperties;
@@ -40,6 +44,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.ServiceConfigurationError;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import javax.ws.rs.NotAllowedException;
@@ -48,6 +53,7 @@ import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.Response.Status.Family;
@@ -58,6 +64,8 @@ import org.glassfish.jersey.client.ClientProperties;
 //Contains static utility methods for the project, most important one is the sendRequest method!
 public final class Utility {
 
+  private static final Logger log = Logger.getLogger(Utility.class);
+
   private static Client client = createClient(null);
   private static Client sslClient;
 
@@ -72,6 +80,13 @@ public final class Utility {
   private static final String APP_CONF = "app.conf";
   private static final String APP_CONF_DIR = "config" + File.separator + "app.conf";
 
+  /*
+    Every request sent by sendRequest is reported to the call metrics registry (CallMetrics by default, http_call_metrics=false
+    disables it). Requests slower than http_slow_call_threshold milliseconds are also logged.
+   */
+  private static final TypeSafeProperties callMetricsProps = getCallMetricsProps();
+  private static final long slowCallThreshold = TimeUnit.MILLISECONDS.toNanos(callMetricsProps.getIntProperty("http_slow_call_threshold", 0));
+  private static volatile CallMetricsRegistry callMetrics = createCallMetrics();
 
   private Utility() throws AssertionError {
     throw new AssertionError("Arrowhead Common:Utility is a non-instantiable class");
@@ -96,71 +111,165 @@ public final class Utility {
     sslClient = createClient(context);
   }
 
+  //Tools using the Utility without a config file get the defaults
+  private static TypeSafeProperties getCallMetricsProps() {
+    if (Files.isReadable(Paths.get(DEFAULT_CONF)) || Files.isReadable(Paths.get(DEFAULT_CONF_DIR))) {
+      return getProp();
+    }
+    return new TypeSafeProperties();
+  }
+
+  private static CallMetricsRegistry createCallMetrics() {
+    if (!callMetricsProps.getBooleanProperty("http_call_metrics", true)) {
+      return null;
+    }
+    String className = callMetricsProps.getProperty("http_call_metrics_registry", "").trim();
+    if (className.isEmpty()) {
+      return CallMetrics.getInstance();
+    }
+    try {
+      return Class.forName(className).asSubclass(CallMetricsRegistry.class).newInstance();
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      throw new ServiceConfigurationError(
+          "http_call_metrics_registry has to be the name of a CallMetricsRegistry class with a public no-argument constructor!", e);
+    }
+  }
+
+  //Replaces the registry the requests are reported to (null stops the reporting)
+  public static void setCallMetricsRegistry(CallMetricsRegistry registry) {
+    callMetrics = registry;
+  }
+
+  public static CallMetricsRegistry getCallMetricsRegistry() {
+    return callMetrics;
+  }
+
   //Sends a HTTP request to the given url, with the given HTTP method type and given payload
   public static <T> Response sendRequest(String uri, String method, T payload, SSLContext givenContext) {
-    boolean isSecure = false;
     if (uri == null) {
       throw new NullPointerException("send (HTTP) request method received null URL");
     }
-    if (uri.startsWith("https")) {
-      isSecure = true;
-    }
-
-    if (isSecure && sslClient == null) {
-      throw new AuthException(
-          "SSL Context is not set, but secure request sending was invoked. An insecure module can not send requests to secure modules.",
-          Status.UNAUTHORIZED.getStatusCode());
-    }
-    Client usedClient = isSecure ? givenContext != null ? createClient(givenContext) : sslClient : client;
+    Client usedClient = getClient(uri, givenContext);
 
     Builder request = usedClient.target(UriBuilder.fromUri(uri).build()).request().header("Content-type", "application/json");
-    Response response; // will not be null after the switch-case
+    long start = System.nanoTime();
+    RuntimeException error = null;
     try {
-      switch (method) {
-        case "GET":
-          response = request.get();
-          break;
-        case "POST":
-          response = request.post(Entity.json(payload));
-          break;
-        case "PUT":
-          response = request.put(Entity.json(payload));
-          break;
-        case "DELETE":
-          response = request.delete();
-          break;
-        default:
-          throw new NotAllowedException("Invalid method type was given to the Utility.sendRequest() method");
+      Response response; // will not be null after the switch-case
+      try {
+        switch (method) {
+          case "GET":
+            response = request.get();
+            break;
+          case "POST":
+            response = request.post(Entity.json(payload));
+            break;
+          case "PUT":
+            response = request.put(Entity.json(payload));
+            break;
+          case "DELETE":
+            response = request.delete();
+            break;
+          default:
+            throw new NotAllowedException("Invalid method type was given to the Utility.sendRequest() method");
+        }
+      } catch (ProcessingException e) {
+        if (e.getCause().getMessage().contains("PKIX path")) {
+          throw new AuthException("The system at " + uri + " is not part of the same certificate chain of trust!",
+                                  Status.UNAUTHORIZED.getStatusCode(), e);
+        } else {
+          throw new UnavailableServerException("Could not get any response from: " + uri, Status.SERVICE_UNAVAILABLE.getStatusCode(), e);
+        }
       }
-    } catch (ProcessingException e) {
-      if (e.getCause().getMessage().contains("PKIX path")) {
-        throw new AuthException("The system at " + uri + " is not part of the same certificate chain of trust!", Status.UNAUTHORIZED.getStatusCode(),
-                                e);
-      } else {
-        throw new UnavailableServerException("Could not get any response from: " + uri, Status.SERVICE_UNAVAILABLE.getStatusCode(), e);
+
+      // If the response status code does not start with 2 the request was not successful
+      if (!(response.getStatusInfo().getFamily() == Family.SUCCESSFUL)) {
+        handleException(response, uri);
       }
-    }
 
-    // If the response status code does not start with 2 the request was not successful
-    if (!(response.getStatusInfo().getFamily() == Family.SUCCESSFUL)) {
-      handleException(response, uri);
+      return response;
+    } catch (RuntimeException e) {
+      error = e;
+      throw e;
+    } finally {
+      callFinished(uri, method, start, error);
     }
-
-    return response;
   }
 
   public static <T> Response sendRequest(String uri, String method, T payload) {
     return sendRequest(uri, method, payload, null);
   }
 
-  private static void handleException(Response response, String uri) {
-    //The response body has to be extracted before the stream closes
-    String errorMessageBody = toPrettyJson(null, response.getEntity());
-    if (errorMessageBody == null || errorMessageBody.equals("null")) {
-      response.bufferEntity();
-      errorMessageBody = response.readEntity(String.class);
+  //Reports a finished request to the call metrics registry (without a connect time, see CallMetricsRegistry), and logs it if it was slow
+  private static void callFinished(String uri, String method, long start, Throwable error) {
+    long totalNanos = System.nanoTime() - start;
+    CallMetricsRegistry registry = callMetrics;
+    boolean slow = slowCallThreshold > 0 && totalNanos >= slowCallThreshold;
+    if (registry == null && !slow) {
+      return;
+    }
+    ExceptionType errorType = null;
+    if (error instanceof ArrowheadException) {
+      errorType = ((ArrowheadException) error).getExceptionType();
+    } else if (error != null) {
+      errorType = ExceptionType.GENERIC;
+    }
+
+    if (registry != null) {
+      try {
+        registry.callFinished(targetOf(uri), method, 0, totalNanos, errorType);
+      } catch (RuntimeException e) {
+        //Failing metrics should not fail the request
+        log.warn("Call metrics registry failed: " + e.toString());
+      }
     }
+    if (slow) {
+      log.warn("Slow request: " + method + " " + withoutQuery(uri) + " took " + TimeUnit.NANOSECONDS.toMillis(totalNanos) + " ms"
+                   + (errorType != null ? ", failed with " + errorType : ""));
+    }
+  }
+
+  //The host:port of the URL, which the calls are grouped by
+  private static String targetOf(String uri) {
+    try {
+      URI parsed = new URI(uri);
+      String host = parsed.getHost() != null ? parsed.getHost() : parsed.getAuthority();
+      return parsed.getPort() == -1 ? host : host + ":" + parsed.getPort();
+    } catch (URISyntaxException e) {
+      return withoutQuery(uri);
+    }
+  }
 
+  //The URL without its query string, which carries the token and signature of the requester in secure mode
+  private static String withoutQuery(String uri) {
+    int query = uri.indexOf('?');
+    return query == -1 ? uri : uri.substring(0, query);
+  }
+
+  /*
+    Returns a WebTarget for the given url, from the same (secure or insecure) client sendRequest uses. This is meant for requests
+    sendRequest does not cover, like subscribing to a stream of server-sent events.
+   */
+  public static WebTarget getTarget(String uri) {
+    if (uri == null) {
+      throw new NullPointerException("getTarget method received null URL");
+    }
+    return getClient(uri, null).target(UriBuilder.fromUri(uri).build());
+  }
+
+  private static Client getClient(String uri, SSLContext givenContext) {
+    boolean isSecure = uri.startsWith("https");
+    if (isSecure && sslClient == null) {
+      throw new AuthException(
+          "SSL Context is not set, but secure request sending was invoked. An insecure module can not send requests to secure modules.",
+          Status.UNAUTHORIZED.getStatusCode());
+    }
+    return isSecure ? givenContext != null ? createClient(givenContext) : sslClient : client;
+  }
+
+  private static void handleException(Response response, String uri) {
+    //The response body is buffered, so it can still be logged after parsing it as an ErrorMessage failed
+    response.bufferEntity();
     ErrorMessage errorMessage;
     try {
       errorMessage = response.readEntity(ErrorMessage.class);
@@ -168,11 +277,11 @@ public final class Utility {
       throw new ArrowheadException("Unknown error occurred at " + uri, e);
     }
     if (errorMessage == null || errorMessage.getExceptionType() == null) {
-      System.out.println("Request failed, response status code: " + response.getStatus());
-      System.out.println("Request failed, response body: " + errorMessageBody);
+      log.warn("Request failed, response status code: " + response.getStatus());
+      log.warn(() -> "Request failed, response body: " + response.readEntity(String.class));
       throw new ArrowheadException("Unknown error occurred at " + uri);
     } else {
-      System.out.println(Utility.toPrettyJson(null, errorMessage));
+      log.warn(() -> "Request failed: " + Utility.toPrettyJson(null, errorMessage));
       switch (errorMessage.getExceptionType()) {
         case ARROWHEAD:
           throw new ArrowheadException(errorMessage.getErrorMessage(), errorMessage.getErrorCode());
@@ -325,7 +434,7 @@ public final class Utility {
       throw new ServiceConfigurationError(
           fileName + " file not found, make sure you have the correct working directory set! (directory where the config folder can be found)", ex);
     } catch (Exception ex) {
-      ex.printStackTrace();
+      log.error("Loading " + fileName + " failed", ex);
     }
     return prop;
   }
@@ -9,6 +9,7 @@
 
 package eu.arrowhead.client.common.exception;
 
+import eu.arrowhead.client.common.log.Logger;
 import javax.inject.Inject;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
@@ -20,6 +21,8 @@ import org.glassfish.jersey.server.ContainerResponse;
 @Provider
 public class ArrowheadExceptionMapper implements ExceptionMapper<ArrowheadException> {
 
+  private static final Logger log = Logger.getLogger(ArrowheadExceptionMapper.class);
+
   @Inject
   private javax.inject.Provider<ContainerRequest> requestContext;
   @Inject
@@ -27,7 +30,7 @@ public class ArrowheadExceptionMapper implements ExceptionMapper<ArrowheadExcept
 
   @Override
   public Response toResponse(ArrowheadException ex) {
-    ex.printStackTrace();
+    log.error("ArrowheadException while handling the request", ex);
     String origin =
         ex.getOrigin() != null ? ex.getOrigin() : (requestContext.get() != null ? requestContext.get().getAbsolutePath().toString() : "unknown");
     int errorCode = (ex.getErrorCode() == 0 && responseContext.get() != null) ? responseContext.get().getStatus() : ex.getErrorCode();
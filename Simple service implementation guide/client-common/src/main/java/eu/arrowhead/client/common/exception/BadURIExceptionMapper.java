@@ -9,6 +9,7 @@
 
 package eu.arrowhead.client.common.exception;
 
+import eu.arrowhead.client.common.log.Logger;
 import javax.inject.Inject;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.core.Response;
@@ -20,11 +21,13 @@ import org.glassfish.jersey.server.ContainerRequest;
 @Provider
 public class BadURIExceptionMapper implements ExceptionMapper<NotFoundException> {
 
+  private static final Logger log = Logger.getLogger(BadURIExceptionMapper.class);
+
   @Inject
   private javax.inject.Provider<ContainerRequest> requestContext;
 
   public Response toResponse(NotFoundException ex) {
-    ex.printStackTrace();
+    log.warn("Request to an invalid path", ex);
     ErrorMessage errorMessage = new ErrorMessage(requestContext.get().getPath(true) + " is not a valid path!", 400, ExceptionType.BAD_URI,
                                                  requestContext.get().getBaseUri().toString());
     return Response.status(Status.BAD_REQUEST).entity(errorMessage).header("Content-type", "application/json").build();
@@ -9,6 +9,7 @@
 
 package eu.arrowhead.client.common.exception;
 
+import eu.arrowhead.client.common.log.Logger;
 import javax.inject.Inject;
 import javax.validation.ConstraintViolationException;
 import javax.ws.rs.core.Response;
@@ -19,12 +20,14 @@ import org.glassfish.jersey.server.ContainerRequest;
 @Provider
 public class ConstraintViolationExceptionMapper implements ExceptionMapper<ConstraintViolationException> {
 
+  private static final Logger log = Logger.getLogger(ConstraintViolationExceptionMapper.class);
+
   @Inject
   private javax.inject.Provider<ContainerRequest> requestContext;
 
   @Override
   public Response toResponse(ConstraintViolationException exception) {
-    exception.printStackTrace();
+    log.warn("Request violating the constraints of the resource", exception);
     int errorCode = 404; //Bad Request
     String origin = requestContext.get() != null ? requestContext.get().getAbsolutePath().toString() : "unknown";
 
@@ -9,6 +9,7 @@
 
 package eu.arrowhead.client.common.exception;
 
+import eu.arrowhead.client.common.log.Logger;
 import javax.inject.Inject;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status.Family;
@@ -20,6 +21,8 @@ import org.glassfish.jersey.server.ContainerResponse;
 @Provider
 public class GenericExceptionMapper implements ExceptionMapper<Exception> {
 
+  private static final Logger log = Logger.getLogger(GenericExceptionMapper.class);
+
   @Inject
   private javax.inject.Provider<ContainerRequest> requestContext;
   @Inject
@@ -27,7 +30,7 @@ public class GenericExceptionMapper implements ExceptionMapper<Exception> {
 
   @Override
   public Response toResponse(Exception ex) {
-    ex.printStackTrace();
+    log.error("Unexpected exception while handling the request", ex);
     int errorCode = 500; //Internal Server Error
     String origin = requestContext.get() != null ? requestContext.get().getAbsolutePath().toString() : "unknown";
     if (responseContext.get() != null && responseContext.get().getStatusInfo().getFamily() != Family.OTHER) {
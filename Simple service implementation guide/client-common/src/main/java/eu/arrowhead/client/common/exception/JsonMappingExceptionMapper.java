@@ -10,6 +10,7 @@
 package eu.arrowhead.client.common.exception;
 
 import com.fasterxml.jackson.databind.JsonMappingException;
+import eu.arrowhead.client.common.log.Logger;
 import javax.annotation.Priority;
 import javax.inject.Inject;
 import javax.ws.rs.core.Response;
@@ -23,6 +24,8 @@ import org.glassfish.jersey.server.ContainerResponse;
 @Priority(1) //This is needed in order to give this Mapper higher priority over Jackson's own implementation
 public class JsonMappingExceptionMapper implements ExceptionMapper<JsonMappingException> {
 
+  private static final Logger log = Logger.getLogger(JsonMappingExceptionMapper.class);
+
   @Inject
   private javax.inject.Provider<ContainerRequest> requestContext;
   @Inject
@@ -30,7 +33,7 @@ public class JsonMappingExceptionMapper implements ExceptionMapper<JsonMappingEx
 
   @Override
   public Response toResponse(JsonMappingException ex) {
-    ex.printStackTrace();
+    log.warn("Request with an unmappable JSON payload", ex);
     int errorCode = 404; //Bad Request
     String origin = requestContext.get() != null ? requestContext.get().getAbsolutePath().toString() : "unknown";
     if (responseContext.get() != null && responseContext.get().getStatusInfo().getFamily() != Family.OTHER) {
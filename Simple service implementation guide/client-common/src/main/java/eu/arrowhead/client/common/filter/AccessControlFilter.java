@@ -11,6 +11,7 @@ package eu.arrowhead.client.common.filter;
 
 import eu.arrowhead.client.common.Utility;
 import eu.arrowhead.client.common.exception.AuthException;
+import eu.arrowhead.client.common.log.Logger;
 import eu.arrowhead.client.common.misc.SecurityUtils;
 import javax.annotation.Priority;
 import javax.inject.Inject;
@@ -28,6 +29,8 @@ import javax.ws.rs.ext.Provider;
 //This class is meant to block incoming requests that are not authorized, based on the client certificate
 public class AccessControlFilter implements ContainerRequestFilter {
 
+  private static final Logger log = Logger.getLogger(AccessControlFilter.class);
+
   @Context
   Configuration configuration;
   @Inject
@@ -40,7 +43,7 @@ public class AccessControlFilter implements ContainerRequestFilter {
     if (sc.isSecure()) {
       String subjectName = sc.getUserPrincipal().getName();
       if (isClientAuthorized(subjectName)) {
-        System.out.println("SSL identification is successful! Cert: " + subjectName);
+        log.debug("SSL identification is successful! Cert: " + subjectName);
       } else {
         throw new AuthException(SecurityUtils.getCertCNFromSubject(subjectName) + " is unauthorized to access " + requestTarget);
       }
@@ -71,7 +74,7 @@ public class AccessControlFilter implements ContainerRequestFilter {
     String serverCN = (String) configuration.getProperty("server_common_name");
 
     if (!SecurityUtils.isKeyStoreCNArrowheadValid(clientCN)) {
-      System.out.println("Client cert does not have 5 parts, so the access will be denied.");
+      log.warn("Client cert does not have 5 parts, so the access will be denied.");
       return false;
     }
     // All requests from the local cloud are allowed, so omit the first part of the common names (systemName)
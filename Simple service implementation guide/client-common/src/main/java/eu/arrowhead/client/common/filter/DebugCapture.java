@@ -0,0 +1,291 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.filter;
+
+import eu.arrowhead.client.common.Utility;
+import eu.arrowhead.client.common.log.Logger;
+import eu.arrowhead.client.common.misc.TypeSafeProperties;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.MediaType;
+
+/*
+  The "tee" capture mode of the InboundDebugFilter. The resources read the original entity stream, while the first
+  debug_capture_bytes bytes of it are copied into a slot of a fixed ring of preallocated buffers (debug_capture_slots of them).
+  Full slots are printed by a background thread, so the request threads never format or print the payloads, and the payloads
+  reach the resources unchanged (binary ones too). Only debug_sample_rate fraction of the requests are captured, and when
+  every slot is in use, requests are skipped (and counted) instead of waiting for the logger.
+ */
+final class DebugCapture {
+
+  private static final Logger log = Logger.getLogger(DebugCapture.class);
+
+  private static final int FREE = 0;
+  private static final int WRITING = 1;
+  private static final int READY = 2;
+  private static final Comparator<Slot> ARRIVAL_ORDER = Comparator.comparingLong(slot -> slot.sequence);
+
+  private final double sampleRate;
+  private final Slot[] slots;
+  private final AtomicInteger cursor = new AtomicInteger();
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final Thread logger;
+
+  private DebugCapture(TypeSafeProperties props) {
+    sampleRate = props.getDoubleProperty("debug_sample_rate", 1.0);
+    int capacity = Math.max(0, props.getIntProperty("debug_capture_bytes", 4096));
+    slots = new Slot[Math.max(1, props.getIntProperty("debug_capture_slots", 64))];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = new Slot(capacity);
+    }
+    logger = new Thread(this::logSlots, "debug-capture-logger");
+    logger.setDaemon(true);
+    logger.start();
+  }
+
+  //Set up at the first request logged, so the config is only read in debug mode
+  private static final class Holder {
+
+    private static final DebugCapture instance = create(Utility.getProp());
+  }
+
+  //The capture of the tee mode, null if debug_capture_mode is not "tee"
+  static DebugCapture getInstance() {
+    return Holder.instance;
+  }
+
+  private static DebugCapture create(TypeSafeProperties props) {
+    return props.getProperty("debug_capture_mode", "pretty").trim().equalsIgnoreCase("tee") ? new DebugCapture(props) : null;
+  }
+
+  //Returns a free slot for a sampled request, or null if the request is not captured
+  Slot start(ContainerRequestContext request) {
+    if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+      return null;
+    }
+    int start = cursor.getAndIncrement();
+    for (int i = 0; i < slots.length; i++) {
+      Slot slot = slots[Math.floorMod(start + i, slots.length)];
+      if (slot.state.compareAndSet(FREE, WRITING)) {
+        slot.sequence = sequence.getAndIncrement();
+        slot.method = request.getMethod();
+        slot.uri = request.getUriInfo().getRequestUri().toString();
+        slot.mediaType = request.getMediaType();
+        slot.hasEntity = false;
+        slot.length = 0;
+        slot.total = 0;
+        return slot;
+      }
+    }
+    dropped.incrementAndGet();
+    return null;
+  }
+
+  //Hands the slot over to the logger thread, the owner must not touch it afterwards
+  void finish(Slot slot) {
+    slot.state.set(READY);
+    LockSupport.unpark(logger);
+  }
+
+  private void logSlots() {
+    List<Slot> ready = new ArrayList<>(slots.length);
+    long reportedDrops = 0;
+    while (true) {
+      for (Slot slot : slots) {
+        if (slot.state.get() == READY) {
+          ready.add(slot);
+        }
+      }
+      if (ready.isEmpty()) {
+        LockSupport.park(this);
+        continue;
+      }
+
+      //Printing the requests in the order they arrived
+      ready.sort(ARRIVAL_ORDER);
+      for (Slot slot : ready) {
+        log.debug(slot.format());
+        slot.mediaType = null;
+        slot.state.set(FREE);
+      }
+      ready.clear();
+      long drops = dropped.get();
+      if (drops > reportedDrops) {
+        log.warn((drops - reportedDrops) + " request(s) were not logged, because every debug capture slot was in use.");
+        reportedDrops = drops;
+      }
+    }
+  }
+
+  static final class Slot {
+
+    private final AtomicInteger state = new AtomicInteger(FREE);
+    private final byte[] buffer;
+    private long sequence;
+    private String method;
+    private String uri;
+    private MediaType mediaType;
+    private boolean hasEntity;
+    private int length;
+    private long total;
+
+    private Slot(int capacity) {
+      buffer = new byte[capacity];
+    }
+
+    private void write(int b) {
+      if (length < buffer.length) {
+        buffer[length++] = (byte) b;
+      }
+      total++;
+    }
+
+    private void write(byte[] b, int off, int len) {
+      int copied = Math.min(len, buffer.length - length);
+      if (copied > 0) {
+        System.arraycopy(b, off, buffer, length, copied);
+        length += copied;
+      }
+      total += len;
+    }
+
+    private String format() {
+      StringBuilder sb = new StringBuilder("New ").append(method).append(" request at: ").append(uri);
+      if (total == 0) {
+        return hasEntity ? sb.append("\n[payload not read by the resource]").toString() : sb.toString();
+      }
+      sb.append('\n');
+      if (isText(mediaType)) {
+        sb.append(new String(buffer, 0, length, charsetOf(mediaType)));
+        if (total > length) {
+          sb.append("... (").append(total - length).append(" more bytes)");
+        }
+      } else {
+        sb.append('[').append(total).append(" bytes of ").append(mediaType).append(']');
+      }
+      return sb.toString();
+    }
+  }
+
+  //Copies the bytes read by the resource into the slot, and finishes the capture at the end of the stream (or when closed)
+  static final class TeeInputStream extends FilterInputStream {
+
+    private final DebugCapture capture;
+    private Slot slot;
+
+    TeeInputStream(InputStream in, DebugCapture capture, Slot slot) {
+      super(in);
+      this.capture = capture;
+      this.slot = slot;
+      slot.hasEntity = true;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b == -1) {
+        finish();
+      } else {
+        captured(b);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int count = super.read(b, off, len);
+      if (count == -1) {
+        finish();
+      } else {
+        captured(b, off, count);
+      }
+      return count;
+    }
+
+    //Skipped bytes are not captured, only counted
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      skipped(skipped);
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        finish();
+      }
+    }
+
+    //Also called after the response, for the entities the resource did not read to the end
+    synchronized void finish() {
+      if (slot != null) {
+        capture.finish(slot);
+        slot = null;
+      }
+    }
+
+    //The slot is only written while holding the lock, so a late read can not write into a slot already handed over
+    private synchronized void captured(int b) {
+      if (slot != null) {
+        slot.write(b);
+      }
+    }
+
+    private synchronized void captured(byte[] b, int off, int len) {
+      if (slot != null) {
+        slot.write(b, off, len);
+      }
+    }
+
+    private synchronized void skipped(long n) {
+      if (slot != null) {
+        slot.total += n;
+      }
+    }
+  }
+
+  private static boolean isText(MediaType mediaType) {
+    if (mediaType == null) {
+      return true;
+    }
+    String subtype = mediaType.getSubtype();
+    return mediaType.getType().equals("text") || subtype.equals("json") || subtype.endsWith("+json") || subtype.equals("xml")
+        || subtype.endsWith("+xml") || subtype.equals("x-www-form-urlencoded");
+  }
+
+  private static Charset charsetOf(MediaType mediaType) {
+    String charset = mediaType != null ? mediaType.getParameters().get(MediaType.CHARSET_PARAMETER) : null;
+    try {
+      return charset != null ? Charset.forName(charset) : StandardCharsets.UTF_8;
+    } catch (IllegalArgumentException e) {
+      return StandardCharsets.UTF_8;
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/*
+  Logging facade of the clients, the console output goes through this instead of System.out. Messages below the log level
+  (log_level in default.conf, INFO by default, DEBUG in debug mode) are discarded, and the Supplier variants only build
+  their message (e.g. serialize a payload to JSON) when the level is enabled. The enabled messages are handed over to an
+  AsyncAppender, so the logging threads never wait for the console.
+ */
+public final class Logger {
+
+  private static final Properties props = getLogProps();
+  private static volatile LogLevel level = LogLevel.fromProperty(props.getProperty("log_level"));
+  private static final AsyncAppender appender = new AsyncAppender(getIntProp("log_buffer_size", 8192), System.out);
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> appender.flush(2000), "log-flush"));
+  }
+
+  private final String name;
+
+  private Logger(String name) {
+    this.name = name;
+  }
+
+  public static Logger getLogger(Class<?> aClass) {
+    return new Logger(aClass.getSimpleName());
+  }
+
+  public static LogLevel getLevel() {
+    return level;
+  }
+
+  public static void setLevel(LogLevel newLevel) {
+    level = newLevel;
+  }
+
+  public boolean isEnabled(LogLevel messageLevel) {
+    return messageLevel.compareTo(level) >= 0 && messageLevel != LogLevel.OFF;
+  }
+
+  public boolean isDebugEnabled() {
+    return isEnabled(LogLevel.DEBUG);
+  }
+
+  public void log(LogLevel messageLevel, String message, Throwable error) {
+    if (isEnabled(messageLevel)) {
+      appender.append(messageLevel, name, message, error);
+    }
+  }
+
+  public void log(LogLevel messageLevel, Supplier<String> message, Throwable error) {
+    if (isEnabled(messageLevel)) {
+      appender.append(messageLevel, name, message.get(), error);
+    }
+  }
+
+  public void debug(String message) {
+    log(LogLevel.DEBUG, message, null);
+  }
+
+  public void debug(Supplier<String> message) {
+    log(LogLevel.DEBUG, message, null);
+  }
+
+  public void info(String message) {
+    log(LogLevel.INFO, message, null);
+  }
+
+  public void info(Supplier<String> message) {
+    log(LogLevel.INFO, message, null);
+  }
+
+  public void warn(String message) {
+    log(LogLevel.WARN, message, null);
+  }
+
+  public void warn(Supplier<String> message) {
+    log(LogLevel.WARN, message, null);
+  }
+
+  public void warn(String message, Throwable error) {
+    log(LogLevel.WARN, message, error);
+  }
+
+  public void error(String message) {
+    log(LogLevel.ERROR, message, null);
+  }
+
+  public void error(String message, Throwable error) {
+    log(LogLevel.ERROR, message, error);
+  }
+
+  //Waits until the messages logged so far are written to the console (at most for the given time)
+  public static void flush(long timeoutMillis) {
+    appender.flush(timeoutMillis);
+  }
+
+  /*
+    Read directly (not with Utility.getProp), because Utility itself logs through this class. The same files are used: default.conf,
+    then app.conf overriding it, from the working directory or its config folder. Without them, the defaults are used.
+   */
+  private static Properties getLogProps() {
+    Properties properties = new Properties();
+    for (String fileName : new String[]{"default.conf", "app.conf"}) {
+      File file = new File(fileName);
+      if (!file.isFile()) {
+        file = new File("config" + File.separator + fileName);
+      }
+      if (file.isFile()) {
+        try (InputStream in = new FileInputStream(file)) {
+          properties.load(in);
+        } catch (IOException e) {
+          throw new AssertionError("Loading the log settings from " + fileName + " failed", e);
+        }
+      }
+    }
+    return properties;
+  }
+
+  private static int getIntProp(String key, int defaultValue) {
+    String value = props.getProperty(key);
+    try {
+      return value == null ? defaultValue : Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+}
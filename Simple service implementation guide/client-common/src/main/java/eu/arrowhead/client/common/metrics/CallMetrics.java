@@ -0,0 +1,115 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.metrics;
+
+import eu.arrowhead.client.common.exception.ExceptionType;
+import eu.arrowhead.client.common.log.Logger;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+  Default CallMetricsRegistry (one per JVM): keeps a CallStats for every target and HTTP method the client sent requests to,
+  and exports each of them as an MXBean to the platform MBean server. When the web server metrics are enabled, these are also
+  part of the /metrics output of RequestMetrics.
+ */
+public final class CallMetrics implements CallMetricsRegistry {
+
+  private static final Logger log = Logger.getLogger(CallMetrics.class);
+
+  private static final CallMetrics instance = new CallMetrics();
+  private static final ExceptionType[] TYPES = ExceptionType.values();
+
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, CallStats>> targets = new ConcurrentHashMap<>();
+
+  private CallMetrics() {
+  }
+
+  public static CallMetrics getInstance() {
+    return instance;
+  }
+
+  @Override
+  public void callFinished(String target, String method, long connectNanos, long totalNanos, ExceptionType error) {
+    ConcurrentHashMap<String, CallStats> methods = targets.get(target);
+    if (methods == null) {
+      methods = targets.computeIfAbsent(target, key -> new ConcurrentHashMap<>());
+    }
+    CallStats stats = methods.get(method);
+    if (stats == null) {
+      stats = methods.computeIfAbsent(method, key -> createStats(target, key));
+    }
+    stats.record(totalNanos, error);
+  }
+
+  //Statistics of every target and method requested so far, by the HTTP method and target
+  public Map<String, CallStats> getCalls() {
+    Map<String, CallStats> sorted = new TreeMap<>();
+    for (Map<String, CallStats> methods : targets.values()) {
+      for (CallStats stats : methods.values()) {
+        sorted.put(stats.getMethod() + " " + stats.getTarget(), stats);
+      }
+    }
+    return sorted;
+  }
+
+  void appendPrometheus(StringBuilder sb) {
+    Map<String, CallStats> all = getCalls();
+    if (all.isEmpty()) {
+      return;
+    }
+
+    sb.append("# HELP arrowhead_http_client_request_duration_seconds Time from sending a request to receiving its response.\n");
+    sb.append("# TYPE arrowhead_http_client_request_duration_seconds summary\n");
+    for (CallStats stats : all.values()) {
+      LatencyHistogram latency = stats.getLatency();
+      for (double quantile : RequestMetrics.QUANTILES) {
+        sample(sb, "arrowhead_http_client_request_duration_seconds", stats, "quantile", Double.toString(quantile))
+            .append(latency.getPercentileMicros(quantile) / 1e6).append('\n');
+      }
+      sample(sb, "arrowhead_http_client_request_duration_seconds_sum", stats, null, null).append(latency.getSumMicros() / 1e6).append('\n');
+      sample(sb, "arrowhead_http_client_request_duration_seconds_count", stats, null, null).append(latency.getCount()).append('\n');
+    }
+
+    sb.append("# HELP arrowhead_http_client_errors_total Failed requests, by the type of the exception.\n");
+    sb.append("# TYPE arrowhead_http_client_errors_total counter\n");
+    for (CallStats stats : all.values()) {
+      for (ExceptionType type : TYPES) {
+        long count = stats.getErrorCount(type);
+        if (count > 0) {
+          sample(sb, "arrowhead_http_client_errors_total", stats, "type", type.name()).append(count).append('\n');
+        }
+      }
+    }
+  }
+
+  private static StringBuilder sample(StringBuilder sb, String name, CallStats stats, String label, String value) {
+    sb.append(name).append("{target=\"").append(RequestMetrics.escape(stats.getTarget())).append("\",method=\"")
+      .append(RequestMetrics.escape(stats.getMethod())).append('"');
+    if (label != null) {
+      sb.append(',').append(label).append("=\"").append(value).append('"');
+    }
+    return sb.append("} ");
+  }
+
+  private static CallStats createStats(String target, String method) {
+    CallStats stats = new CallStats(target, method);
+    try {
+      ObjectName name = new ObjectName("eu.arrowhead.client:type=OutboundCall,name=" + ObjectName.quote(method + " " + target));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(stats, name);
+    } catch (JMException e) {
+      log.warn("Registering the JMX bean of " + method + " " + target + " failed: " + e.getMessage());
+    }
+    return stats;
+  }
+}
@@ -0,0 +1,28 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.metrics;
+
+import eu.arrowhead.client.common.exception.ExceptionType;
+
+/*
+  Receives the measurements of the requests sent by Utility.sendRequest. The default is CallMetrics, another implementation can
+  be set with Utility.setCallMetricsRegistry, or named by the http_call_metrics_registry property (then it needs a public
+  no-argument constructor). It is called on the threads sending the requests, so implementations have to be thread-safe and fast.
+ */
+public interface CallMetricsRegistry {
+
+  /*
+    Called once for every request, after its response arrived or it failed. The target is the host:port of the request URL.
+    The JDK connector used by the Simple service implementation guide does not tell when it opens a new connection, so
+    connectNanos is always 0 (the connect time is part of totalNanos). The error is the type of the exception thrown to the
+    caller, null for successful calls.
+   */
+  void callFinished(String target, String method, long connectNanos, long totalNanos, ExceptionType error);
+}
@@ -0,0 +1,102 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.metrics;
+
+import eu.arrowhead.client.common.exception.ExceptionType;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Latency and errors of the outgoing requests with one HTTP method to one target
+public final class CallStats implements CallStatsMXBean {
+
+  private static final ExceptionType[] TYPES = ExceptionType.values();
+
+  private final String target;
+  private final String method;
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final AtomicLongArray errors = new AtomicLongArray(TYPES.length);
+
+  CallStats(String target, String method) {
+    this.target = target;
+    this.method = method;
+  }
+
+  void record(long totalNanos, ExceptionType error) {
+    latency.record(totalNanos);
+    if (error != null) {
+      errors.incrementAndGet(error.ordinal());
+    }
+  }
+
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  public long getErrorCount(ExceptionType type) {
+    return errors.get(type.ordinal());
+  }
+
+  @Override
+  public String getTarget() {
+    return target;
+  }
+
+  @Override
+  public String getMethod() {
+    return method;
+  }
+
+  @Override
+  public long getCallCount() {
+    return latency.getCount();
+  }
+
+  @Override
+  public long getErrorCount() {
+    long sum = 0;
+    for (int i = 0; i < TYPES.length; i++) {
+      sum += errors.get(i);
+    }
+    return sum;
+  }
+
+  @Override
+  public Map<String, Long> getErrorCounts() {
+    Map<String, Long> counts = new LinkedHashMap<>();
+    for (ExceptionType type : TYPES) {
+      long count = errors.get(type.ordinal());
+      if (count > 0) {
+        counts.put(type.name(), count);
+      }
+    }
+    return counts;
+  }
+
+  @Override
+  public double getMeanMillis() {
+    return latency.getMeanMicros() / 1000;
+  }
+
+  @Override
+  public double getMedianMillis() {
+    return latency.getPercentileMicros(0.5) / 1000.0;
+  }
+
+  @Override
+  public double get99thPercentileMillis() {
+    return latency.getPercentileMicros(0.99) / 1000.0;
+  }
+
+  @Override
+  public double getMaxMillis() {
+    return latency.getMaxMicros() / 1000.0;
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.metrics;
+
+import java.util.Map;
+
+//JMX view of the outgoing requests with one HTTP method to one target (eu.arrowhead.client:type=OutboundCall,name=<method target>)
+public interface CallStatsMXBean {
+
+  String getTarget();
+
+  String getMethod();
+
+  long getCallCount();
+
+  long getErrorCount();
+
+  //Error counts by ExceptionType
+  Map<String, Long> getErrorCounts();
+
+  double getMeanMillis();
+
+  double getMedianMillis();
+
+  double get99thPercentileMillis();
+
+  double getMaxMillis();
+}
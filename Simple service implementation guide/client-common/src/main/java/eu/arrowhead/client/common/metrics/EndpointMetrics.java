@@ -0,0 +1,109 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Latency, in-flight requests and response status codes of one resource method
+public final class EndpointMetrics implements EndpointMetricsMXBean {
+
+  private static final int MAX_STATUS = 600;
+
+  private final String endpoint;
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicLongArray statuses = new AtomicLongArray(MAX_STATUS);
+
+  EndpointMetrics(String endpoint) {
+    this.endpoint = endpoint;
+  }
+
+  void requestStarted() {
+    inFlight.incrementAndGet();
+  }
+
+  void requestFinished(long nanos, int status) {
+    inFlight.decrementAndGet();
+    latency.record(nanos);
+    countStatus(status);
+  }
+
+  void countStatus(int status) {
+    //Non-standard status codes are counted as 0
+    statuses.incrementAndGet(status > 0 && status < MAX_STATUS ? status : 0);
+  }
+
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  //Number of responses with the given status code
+  public long getStatusCount(int status) {
+    return status >= 0 && status < MAX_STATUS ? statuses.get(status) : 0;
+  }
+
+  static int maxStatus() {
+    return MAX_STATUS;
+  }
+
+  @Override
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  @Override
+  public long getRequestCount() {
+    return latency.getCount();
+  }
+
+  @Override
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  @Override
+  public long getClientErrorCount() {
+    return countStatuses(400, 500);
+  }
+
+  @Override
+  public long getServerErrorCount() {
+    return countStatuses(500, MAX_STATUS);
+  }
+
+  @Override
+  public double getMeanMillis() {
+    return latency.getMeanMicros() / 1000;
+  }
+
+  @Override
+  public double getMedianMillis() {
+    return latency.getPercentileMicros(0.5) / 1000.0;
+  }
+
+  @Override
+  public double get99thPercentileMillis() {
+    return latency.getPercentileMicros(0.99) / 1000.0;
+  }
+
+  @Override
+  public double getMaxMillis() {
+    return latency.getMaxMicros() / 1000.0;
+  }
+
+  private long countStatuses(int from, int to) {
+    long sum = 0;
+    for (int status = from; status < to; status++) {
+      sum += statuses.get(status);
+    }
+    return sum;
+  }
+}
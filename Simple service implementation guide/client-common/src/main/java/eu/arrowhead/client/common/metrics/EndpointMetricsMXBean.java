@@ -0,0 +1,32 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.metrics;
+
+//JMX view of the metrics of one resource method (eu.arrowhead.client:type=Endpoint,name=<HTTP method and path>)
+public interface EndpointMetricsMXBean {
+
+  String getEndpoint();
+
+  long getRequestCount();
+
+  int getInFlight();
+
+  long getClientErrorCount();
+
+  long getServerErrorCount();
+
+  double getMeanMillis();
+
+  double getMedianMillis();
+
+  double get99thPercentileMillis();
+
+  double getMaxMillis();
+}
@@ -0,0 +1,175 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.common.metrics;
+
+import eu.arrowhead.client.common.log.Logger;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import org.glassfish.jersey.process.Inflector;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+
+/*
+  Request metrics of the web server of the client (one registry per JVM). When the metrics_enabled property is true, the
+  ArrowheadClientMain registers the MetricsFilter, which measures every request, and a GET /metrics endpoint, which returns
+  the metrics in the Prometheus text format. Every resource method is also exported as an MXBean to the platform MBean server.
+ */
+public final class RequestMetrics {
+
+  private static final Logger log = Logger.getLogger(RequestMetrics.class);
+
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  private static final RequestMetrics instance = new RequestMetrics();
+  static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+  private final ConcurrentHashMap<ResourceMethod, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+  //Responses of requests which did not match any resource method (e.g. 404), only their status is counted
+  private final EndpointMetrics unmatched = new EndpointMetrics("unmatched");
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private RequestMetrics() {
+  }
+
+  public static RequestMetrics getInstance() {
+    return instance;
+  }
+
+  //Adds the measuring filter and the /metrics endpoint to the configuration of a web server
+  public static void register(ResourceConfig config) {
+    config.register(MetricsFilter.class);
+    Resource.Builder metricsResource = Resource.builder("metrics");
+    metricsResource.addMethod(HttpMethod.GET).produces(CONTENT_TYPE).handledBy(new Inflector<ContainerRequestContext, String>() {
+      @Override
+      public String apply(ContainerRequestContext request) {
+        return instance.toPrometheus();
+      }
+    });
+    config.registerResources(metricsResource.build());
+  }
+
+  //Number of requests being processed at the moment
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  //Metrics of every resource method requested so far, by the HTTP method and path of the endpoint
+  public Map<String, EndpointMetrics> getEndpoints() {
+    Map<String, EndpointMetrics> sorted = new TreeMap<>();
+    for (EndpointMetrics metrics : endpoints.values()) {
+      sorted.put(metrics.getEndpoint(), metrics);
+    }
+    return sorted;
+  }
+
+  EndpointMetrics requestStarted(ResourceMethod method) {
+    EndpointMetrics metrics = endpoints.get(method);
+    if (metrics == null) {
+      metrics = endpoints.computeIfAbsent(method, RequestMetrics::createEndpoint);
+    }
+    inFlight.incrementAndGet();
+    metrics.requestStarted();
+    return metrics;
+  }
+
+  void requestFinished(EndpointMetrics metrics, long nanos, int status) {
+    inFlight.decrementAndGet();
+    metrics.requestFinished(nanos, status);
+  }
+
+  void unmatchedResponse(int status) {
+    unmatched.countStatus(status);
+  }
+
+  public String toPrometheus() {
+    Map<String, EndpointMetrics> all = getEndpoints();
+    StringBuilder sb = new StringBuilder(1024);
+
+    sb.append("# HELP arrowhead_http_requests_in_flight Requests being processed by the web server.\n");
+    sb.append("# TYPE arrowhead_http_requests_in_flight gauge\n");
+    sb.append("arrowhead_http_requests_in_flight ").append(inFlight.get()).append('\n');
+    sb.append("# HELP arrowhead_http_endpoint_requests_in_flight Requests being processed, by endpoint.\n");
+    sb.append("# TYPE arrowhead_http_endpoint_requests_in_flight gauge\n");
+    for (EndpointMetrics metrics : all.values()) {
+      sample(sb, "arrowhead_http_endpoint_requests_in_flight", metrics, null, null).append(metrics.getInFlight()).append('\n');
+    }
+
+    sb.append("# HELP arrowhead_http_request_duration_seconds Time from receiving a request to sending its response headers.\n");
+    sb.append("# TYPE arrowhead_http_request_duration_seconds summary\n");
+    for (EndpointMetrics metrics : all.values()) {
+      LatencyHistogram latency = metrics.getLatency();
+      for (double quantile : QUANTILES) {
+        sample(sb, "arrowhead_http_request_duration_seconds", metrics, "quantile", Double.toString(quantile))
+            .append(latency.getPercentileMicros(quantile) / 1e6).append('\n');
+      }
+      sample(sb, "arrowhead_http_request_duration_seconds_sum", metrics, null, null).append(latency.getSumMicros() / 1e6).append('\n');
+      sample(sb, "arrowhead_http_request_duration_seconds_count", metrics, null, null).append(latency.getCount()).append('\n');
+    }
+
+    sb.append("# HELP arrowhead_http_responses_total Responses sent, by endpoint and status code.\n");
+    sb.append("# TYPE arrowhead_http_responses_total counter\n");
+    all.put(unmatched.getEndpoint(), unmatched);
+    for (EndpointMetrics metrics : all.values()) {
+      for (int status = 0; status < EndpointMetrics.maxStatus(); status++) {
+        long count = metrics.getStatusCount(status);
+        if (count > 0) {
+          sample(sb, "arrowhead_http_responses_total", metrics, "status", Integer.toString(status)).append(count).append('\n');
+        }
+      }
+    }
+
+    //Requests sent by this client to other systems (through Utility.sendRequest)
+    CallMetrics.getInstance().appendPrometheus(sb);
+    return sb.toString();
+  }
+
+  private static StringBuilder sample(StringBuilder sb, String name, EndpointMetrics metrics, String label, String value) {
+    sb.append(name).append("{endpoint=\"").append(escape(metrics.getEndpoint())).append('"');
+    if (label != null) {
+      sb.append(',').append(label).append("=\"").append(value).append('"');
+    }
+    return sb.append("} ");
+  }
+
+  static String escape(String labelValue) {
+    return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static EndpointMetrics createEndpoint(ResourceMethod method) {
+    EndpointMetrics metrics = new EndpointMetrics(method.getHttpMethod() + " " + pathOf(method));
+    try {
+      ObjectName name = new ObjectName("eu.arrowhead.client:type=Endpoint,name=" + ObjectName.quote(metrics.getEndpoint()));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+    } catch (JMException e) {
+      log.warn("Registering the JMX bean of " + metrics.getEndpoint() + " failed: " + e.getMessage());
+    }
+    return metrics;
+  }
+
+  //The path template of the method, like /values/{nodeID}/humidity
+  private static String pathOf(ResourceMethod method) {
+    StringBuilder path = new StringBuilder();
+    for (Resource resource = method.getParent(); resource != null; resource = resource.getParent()) {
+      String part = resource.getPath();
+      if (part != null && !part.isEmpty() && !part.equals("/")) {
+        path.insert(0, part.startsWith("/") ? part : "/" + part);
+      }
+    }
+    String result = path.toString().replaceAll("/+", "/");
+    return result.length() > 1 && result.endsWith("/") ? result.substring(0, result.length() - 1) : result.isEmpty() ? "/" : result;
+  }
+}
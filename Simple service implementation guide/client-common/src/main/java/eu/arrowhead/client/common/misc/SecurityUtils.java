@@ -11,6 +11,7 @@ package eu.arrowhead.client.common.misc;
 
 import eu.arrowhead.client.common.exception.ArrowheadException;
 import eu.arrowhead.client.common.exception.AuthException;
+import eu.arrowhead.client.common.log.Logger;
 import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -46,6 +47,8 @@ import javax.net.ssl.X509TrustManager;
 @SuppressWarnings("unused")
 public final class SecurityUtils {
 
+  private static final Logger log = Logger.getLogger(SecurityUtils.class);
+
   public static KeyStore loadKeyStore(String filePath, String pass) {
     try {
       KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
@@ -81,7 +84,7 @@ public final class SecurityUtils {
         }
       }
     } catch (InvalidNameException e) {
-      System.out.println("InvalidNameException in getCertCNFromSubject: " + e.getMessage());
+      log.warn("InvalidNameException in getCertCNFromSubject: " + e.getMessage());
       return "";
     }
 
@@ -126,7 +129,7 @@ public final class SecurityUtils {
       keystore.setCertificateEntry(alias, cert);
       return keystore;
     } catch (KeyStoreException | IOException | NoSuchAlgorithmException | CertificateException e) {
-      e.printStackTrace();
+      log.error("Keystore creation from " + filePath + " failed", e);
       throw new ServiceConfigurationError("Keystore creation from cert failed...", e);
     }
   }
@@ -162,7 +165,7 @@ public final class SecurityUtils {
     try {
       enumeration = keystore.aliases();
     } catch (KeyStoreException e) {
-      e.printStackTrace();
+      log.error("Reading the aliases of the keystore failed", e);
       return null;
     }
 
@@ -173,7 +176,7 @@ public final class SecurityUtils {
       try {
         clientCert = (X509Certificate) keystore.getCertificate(alias);
       } catch (KeyStoreException e) {
-        e.printStackTrace();
+        log.warn("Reading the certificate of " + alias + " failed", e);
         continue;
       }
       String clientCertCN = getCertCNFromSubject(clientCert.getSubjectDN().getName());
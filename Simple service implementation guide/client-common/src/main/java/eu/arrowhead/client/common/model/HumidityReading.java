@@ -0,0 +1,39 @@
+package eu.arrowhead.client.common.model;
+
+import org.glassfish.jersey.internal.guava.MoreObjects;
+
+//A humidity value of a sensor node, as pushed to the subscribers of the humidity stream
+public class HumidityReading {
+
+  private Integer nodeID;
+  private String humidity;
+
+  public HumidityReading() {
+  }
+
+  public HumidityReading(Integer nodeID, String humidity) {
+    this.nodeID = nodeID;
+    this.humidity = humidity;
+  }
+
+  public Integer getNodeID() {
+    return nodeID;
+  }
+
+  public void setNodeID(Integer nodeID) {
+    this.nodeID = nodeID;
+  }
+
+  public String getHumidity() {
+    return humidity;
+  }
+
+  public void setHumidity(String humidity) {
+    this.humidity = humidity;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this).add("nodeID", nodeID).add("humidity", humidity).toString();
+  }
+}
@@ -5,6 +5,8 @@ import org.glassfish.jersey.internal.guava.MoreObjects;
 public class RPMInput {
 
   private Integer RPM;
+  //Orders the setpoints of batch requests, the provider skips the ones older than the last setpoint it applied
+  private Long sequence;
 
   public RPMInput() {
   }
@@ -13,6 +15,11 @@ public class RPMInput {
     this.RPM = RPM;
   }
 
+  public RPMInput(Long sequence, Integer RPM) {
+    this.sequence = sequence;
+    this.RPM = RPM;
+  }
+
   public Integer getRPM() {
     return RPM;
   }
@@ -21,8 +28,16 @@ public class RPMInput {
     this.RPM = RPM;
   }
 
+  public Long getSequence() {
+    return sequence;
+  }
+
+  public void setSequence(Long sequence) {
+    this.sequence = sequence;
+  }
+
   @Override
   public String toString() {
-    return MoreObjects.toStringHelper(this).add("RPM", RPM).toString();
+    return MoreObjects.toStringHelper(this).add("RPM", RPM).add("sequence", sequence).toString();
   }
 }
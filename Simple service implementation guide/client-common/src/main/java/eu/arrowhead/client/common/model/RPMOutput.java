@@ -5,6 +5,8 @@ import org.glassfish.jersey.internal.guava.MoreObjects;
 public class RPMOutput {
 
   private Integer currentRPM;
+  //Sequence number of the setpoint this output belongs to (only set in batch responses)
+  private Long sequence;
 
   public RPMOutput() {
   }
@@ -13,6 +15,11 @@ public class RPMOutput {
     this.currentRPM = currentRPM;
   }
 
+  public RPMOutput(Long sequence, Integer currentRPM) {
+    this.sequence = sequence;
+    this.currentRPM = currentRPM;
+  }
+
   public Integer getCurrentRPM() {
     return currentRPM;
   }
@@ -21,8 +28,16 @@ public class RPMOutput {
     this.currentRPM = currentRPM;
   }
 
+  public Long getSequence() {
+    return sequence;
+  }
+
+  public void setSequence(Long sequence) {
+    this.sequence = sequence;
+  }
+
   @Override
   public String toString() {
-    return MoreObjects.toStringHelper(this).add("currentRPM", currentRPM).toString();
+    return MoreObjects.toStringHelper(this).add("currentRPM", currentRPM).add("sequence", sequence).toString();
   }
 }
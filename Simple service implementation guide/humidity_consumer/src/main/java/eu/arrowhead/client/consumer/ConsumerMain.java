@@ -12,37 +12,56 @@ package eu.arrowhead.client.consumer;
 import eu.arrowhead.client.common.CertificateBootstrapper;
 import eu.arrowhead.client.common.Utility;
 import eu.arrowhead.client.common.exception.ArrowheadException;
+import eu.arrowhead.client.common.log.Logger;
 import eu.arrowhead.client.common.misc.ClientType;
 import eu.arrowhead.client.common.misc.TypeSafeProperties;
 import eu.arrowhead.client.common.model.ArrowheadService;
 import eu.arrowhead.client.common.model.ArrowheadSystem;
+import eu.arrowhead.client.common.model.HumidityReading;
 import eu.arrowhead.client.common.model.OrchestrationResponse;
 import eu.arrowhead.client.common.model.ServiceRequestForm;
 import java.awt.Font;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.net.ssl.SSLContext;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.sse.SseEventSource;
 import org.glassfish.grizzly.ssl.SSLContextConfigurator;
 import org.glassfish.grizzly.ssl.SSLContextConfigurator.GenericStoreException;
+import org.glassfish.jersey.client.ClientProperties;
 
 public class ConsumerMain {
 
+  private static final Logger log = Logger.getLogger(ConsumerMain.class);
+
   private static boolean isSecure;
+  private static boolean isStream;
+  private static boolean isBulk;
   private static String orchestratorUrl;
   private static TypeSafeProperties props = Utility.getProp();
   private static final String consumerSystemName = props.getProperty("consumer_system_name");
 
   private ConsumerMain(String[] args) {
     //Prints the working directory for extra information. Working directory should always contain a config folder with the app.conf file!
-    System.out.println("Working directory: " + System.getProperty("user.dir"));
+    log.info("Working directory: " + System.getProperty("user.dir"));
 
     //Compile the URL for the orchestration request.
     getOrchestratorUrl(args);
+    isStream = Arrays.asList(args).contains("-stream");
+    isBulk = Arrays.asList(args).contains("-bulk");
 
     //Start a timer, to measure the speed of the Core Systems and the provider application system.
     long startTime = System.currentTimeMillis();
@@ -54,11 +73,21 @@ public class ConsumerMain {
     String providerUrl = sendOrchestrationRequest(srf);
 
     //Connect to the provider, consuming its service - THIS METHOD SHOULD BE MODIFIED ACCORDING TO YOUR USE CASE
-    String humidity = consumeService(providerUrl);
+    //With the -stream argument, the consumer subscribes to the humidity changes instead of requesting the value once
+    //With the -bulk argument, the humidity of every node in humidity_nodes is requested at once
+    String humidity;
+    if (isStream) {
+      humidity = streamService(providerUrl);
+    } else if (isBulk) {
+      Map<Integer, String> readings = consumeBulkService(providerUrl);
+      humidity = readings.size() == 1 ? readings.values().iterator().next() : "known for " + readings.size() + " nodes";
+    } else {
+      humidity = consumeService(providerUrl);
+    }
 
     //Printing out the elapsed time during the orchestration and service consumption
     long endTime = System.currentTimeMillis();
-    System.out.println("Orchestration and Service consumption response time: " + Long.toString(endTime - startTime));
+    log.info("Orchestration and Service consumption response time: " + Long.toString(endTime - startTime));
     //Show a message dialog with the response from the service provider
     JLabel label = new JLabel("The humidity received from the provider is " + humidity);
     label.setFont(new Font("Arial", Font.BOLD, 18));
@@ -105,7 +134,7 @@ public class ConsumerMain {
 
     //Build the complete service request form from the pieces, and return it
     ServiceRequestForm srf = new ServiceRequestForm.Builder(consumer).requestedService(service).orchestrationFlags(orchestrationFlags).build();
-    System.out.println("Service Request payload: " + Utility.toPrettyJson(null, srf));
+    log.debug(() -> "Service Request payload: " + Utility.toPrettyJson(null, srf));
     return srf;
   }
 
@@ -115,7 +144,10 @@ public class ConsumerMain {
       If needed, compile the request payload here, before sending the request.
       Supported method types at the moment: GET, POST, PUT, DELETE
      */
-    Response getResponse = Utility.sendRequest(providerUrl, "GET", null);
+    //Adding the use-case specific information to the URL
+    String humidityUrl = UriBuilder.fromUri(providerUrl).path("24").path("humidity").toString();
+    log.info("Full URL compiled: " + humidityUrl);
+    Response getResponse = Utility.sendRequest(humidityUrl, "GET", null);
 
     /*
       Parsing the response from the provider here. This code prints an error message, if the answer is not in the expected format, but custom
@@ -124,22 +156,80 @@ public class ConsumerMain {
      */
     String readout = null;
     try {
-      readout = getResponse.readEntity(String.class);
-      System.out.println("Provider Response payload: " + Utility.toPrettyJson(null, readout));
+      final String response = getResponse.readEntity(String.class);
+      log.debug(() -> "Provider Response payload: " + Utility.toPrettyJson(null, response));
+      readout = response;
     } catch (RuntimeException e) {
-      e.printStackTrace();
-      System.out.println("Provider did not send the humidity readout in plaintext format.");
+      log.error("Provider did not send the humidity readout in plaintext format.", e);
     }
     return readout;
   }
 
+  /*
+    Requests the humidity of all the nodes given in the humidity_nodes config parameter with a single request, instead of
+    requesting them one by one. The nodes can be listed one by one, or as ranges (e.g. 1-300).
+   */
+  private Map<Integer, String> consumeBulkService(String providerUrl) {
+    UriBuilder ub = UriBuilder.fromUri(providerUrl).path("humidity");
+    addNodeParameters(ub);
+    log.info("Full URL compiled: " + ub.toString());
+    Response getResponse = Utility.sendRequest(ub.toString(), "GET", null);
+
+    Map<Integer, String> readings = Collections.emptyMap();
+    try {
+      readings = getResponse.readEntity(new GenericType<Map<Integer, String>>() {
+      });
+      for (Map.Entry<Integer, String> reading : readings.entrySet()) {
+        log.info("Humidity of node " + reading.getKey() + ": " + reading.getValue());
+      }
+    } catch (RuntimeException e) {
+      log.error("Provider did not send the humidity readouts in the expected JSON format.", e);
+    }
+    return readings;
+  }
+
+  /*
+    Subscribes to the server-sent event stream of the provider, which pushes the humidity of the given nodes (humidity_nodes
+    config parameter) every time it changes, instead of polling the provider. Returns the last value received, when the user
+    stops the stream by pressing Enter.
+   */
+  private String streamService(String providerUrl) {
+    UriBuilder ub = UriBuilder.fromUri(providerUrl).path("stream");
+    addNodeParameters(ub);
+    log.info("Full URL compiled: " + ub.toString());
+    //The stream can be idle for longer than the read timeout of the client
+    WebTarget target = Utility.getTarget(ub.toString()).property(ClientProperties.READ_TIMEOUT, 0);
+
+    AtomicReference<String> lastHumidity = new AtomicReference<>();
+    try (SseEventSource eventSource = SseEventSource.target(target).build()) {
+      eventSource.register(event -> {
+        HumidityReading reading = event.readData(HumidityReading.class, MediaType.APPLICATION_JSON_TYPE);
+        log.info("Humidity of node " + reading.getNodeID() + ": " + reading.getHumidity());
+        lastHumidity.set(reading.getHumidity());
+      }, error -> log.warn("Humidity stream error: " + error.getMessage()));
+      eventSource.open();
+
+      log.info("Receiving the humidity changes, press Enter to stop.");
+      new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)).readLine();
+    } catch (IOException e) {
+      log.error("Reading the console input failed", e);
+    }
+    return lastHumidity.get();
+  }
+
+  private void addNodeParameters(UriBuilder ub) {
+    for (String node : props.getProperty("humidity_nodes", "24").replaceAll("\\s+", "").split(",")) {
+      ub.queryParam("node", node);
+    }
+  }
+
   // Sends the orchestration request to the Orchestrator, and compiles the URL for the first provider received from the OrchestrationResponse
   private String sendOrchestrationRequest(ServiceRequestForm srf) {
     //Sending a POST request to the orchestrator (URL, method, payload)
     Response postResponse = Utility.sendRequest(orchestratorUrl, "POST", srf);
     //Parsing the orchestrator response
     OrchestrationResponse orchResponse = postResponse.readEntity(OrchestrationResponse.class);
-    System.out.println("Orchestration Response payload: " + Utility.toPrettyJson(null, orchResponse));
+    log.debug(() -> "Orchestration Response payload: " + Utility.toPrettyJson(null, orchResponse));
     if (orchResponse.getResponse().isEmpty()) {
       throw new ArrowheadException("Orchestrator returned with 0 Orchestration Forms!");
     }
@@ -160,10 +250,7 @@ public class ConsumerMain {
       ub.queryParam("token", orchResponse.getResponse().get(0).getAuthorizationToken());
       ub.queryParam("signature", orchResponse.getResponse().get(0).getSignature());
     }
-    System.out.println("Received provider system URL: " + ub.toString());
-    //Adding the use-case specific information to the URL
-    ub.path("24").path("humidity");
-    System.out.println("Full URL compiled: " + ub.toString());
+    log.info("Received provider system URL: " + ub.toString());
     return ub.toString();
   }
 
@@ -187,8 +274,7 @@ public class ConsumerMain {
           SSLContext sslContext = sslCon.createSSLContext(true);
           Utility.setSSLContext(sslContext);
         } catch (GenericStoreException e) {
-          System.out.println("Provided SSLContext is not valid, moving to certificate bootstrapping.");
-          e.printStackTrace();
+          log.warn("Provided SSLContext is not valid, moving to certificate bootstrapping.", e);
           sslCon = CertificateBootstrapper.bootstrap(ClientType.CONSUMER, consumerSystemName);
           props = Utility.getProp();
           Utility.setSSLContext(sslCon.createSSLContext(true));
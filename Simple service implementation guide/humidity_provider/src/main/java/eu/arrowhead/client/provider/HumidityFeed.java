@@ -0,0 +1,108 @@
+package eu.arrowhead.client.provider;
+
+import eu.arrowhead.client.common.model.HumidityReading;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+/*
+   Holds the current humidity of the sensor nodes, and pushes the changes to the consumers subscribed to the humidity stream.
+   A new subscriber first receives the current value of every node it subscribed to, then only the values that changed since.
+   Subscribers are dropped when their connection is closed (noticed at the next value sent to them).
+ */
+final class HumidityFeed {
+
+  static final String DEFAULT_HUMIDITY = "40%";
+  static final String EVENT_NAME = "humidity";
+
+  private static final ConcurrentHashMap<Integer, String> readings = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+  private HumidityFeed() throws AssertionError {
+    throw new AssertionError("HumidityFeed is a non-instantiable class");
+  }
+
+  static String get(int nodeID) {
+    return readings.getOrDefault(nodeID, DEFAULT_HUMIDITY);
+  }
+
+  //Nodes which were subscribed to or updated so far
+  static Set<Integer> nodes() {
+    return readings.keySet();
+  }
+
+  static void update(int nodeID, String humidity) {
+    String previous = readings.put(nodeID, humidity);
+    if (humidity.equals(previous)) {
+      return;
+    }
+    Set<Subscriber> nodeSubscribers = subscribers.get(nodeID);
+    if (nodeSubscribers != null) {
+      for (Subscriber subscriber : nodeSubscribers) {
+        subscriber.send(nodeID, humidity);
+      }
+    }
+  }
+
+  static void subscribe(Collection<Integer> nodeIDs, SseEventSink sink, Sse sse) {
+    Subscriber subscriber = new Subscriber(nodeIDs, sink, sse);
+    //Registering first, so a change happening meanwhile is not lost (the subscriber skips values it already sent)
+    for (Integer nodeID : subscriber.nodeIDs) {
+      readings.putIfAbsent(nodeID, DEFAULT_HUMIDITY);
+      subscribers.computeIfAbsent(nodeID, id -> new CopyOnWriteArraySet<>()).add(subscriber);
+    }
+    for (Integer nodeID : subscriber.nodeIDs) {
+      subscriber.send(nodeID, get(nodeID));
+    }
+  }
+
+  private static void unsubscribe(Subscriber subscriber) {
+    for (Integer nodeID : subscriber.nodeIDs) {
+      Set<Subscriber> nodeSubscribers = subscribers.get(nodeID);
+      if (nodeSubscribers != null) {
+        nodeSubscribers.remove(subscriber);
+      }
+    }
+    subscriber.sink.close();
+  }
+
+  private static final class Subscriber {
+
+    private final Set<Integer> nodeIDs;
+    private final SseEventSink sink;
+    private final Sse sse;
+    //The last value sent for each node, guarded by this
+    private final Map<Integer, String> sent = new HashMap<>();
+
+    private Subscriber(Collection<Integer> nodeIDs, SseEventSink sink, Sse sse) {
+      this.nodeIDs = new CopyOnWriteArraySet<>(nodeIDs);
+      this.sink = sink;
+      this.sse = sse;
+    }
+
+    private synchronized void send(int nodeID, String humidity) {
+      if (sink.isClosed()) {
+        unsubscribe(this);
+        return;
+      }
+      if (humidity.equals(sent.put(nodeID, humidity))) {
+        return;
+      }
+
+      OutboundSseEvent event = sse.newEventBuilder().name(EVENT_NAME).mediaType(MediaType.APPLICATION_JSON_TYPE)
+                                  .data(HumidityReading.class, new HumidityReading(nodeID, humidity)).build();
+      sink.send(event).whenComplete((result, error) -> {
+        if (error != null) {
+          unsubscribe(this);
+        }
+      });
+    }
+  }
+}
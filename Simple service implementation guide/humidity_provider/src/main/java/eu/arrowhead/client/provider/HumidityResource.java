@@ -1,5 +1,12 @@
 package eu.arrowhead.client.provider;
 
+import eu.arrowhead.client.common.exception.BadPayloadException;
+import eu.arrowhead.client.common.log.Logger;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -8,19 +15,96 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
 
 @Path("values")
 @Produces(MediaType.TEXT_PLAIN)
 public class HumidityResource {
 
+  private static final Logger log = Logger.getLogger(HumidityResource.class);
+
+  //Upper limit of the nodes a single bulk or stream request can ask for
+  private static final int MAX_NODES = 10000;
+
   @GET
   @Path("/{nodeID}/humidity")
   public String getIt(@PathParam("nodeID") int nodeID, @Context SecurityContext context, @QueryParam("token") String token,
                       @QueryParam("signature") String signature) {
     if (context.isSecure()) {
-      RequestVerification.verifyRequester(context, token, signature);
+      ProviderMain.verification.verifyRequester(context, token, signature);
+    }
+    log.debug("Requesting humidity for node " + nodeID);
+    return HumidityFeed.get(nodeID);
+  }
+
+  /*
+    Returns the humidity of many nodes with one request (and one token verification), as a JSON object mapping the node IDs
+    to their humidity. Every node parameter is either a node ID or an inclusive range of them.
+    Example URL: http://<server_address>:<server_port>/values/humidity?node=1-300&node=512
+   */
+  @GET
+  @Path("humidity")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Map<Integer, String> getBulk(@QueryParam("node") List<String> nodes, @Context SecurityContext context,
+                                      @QueryParam("token") String token, @QueryParam("signature") String signature) {
+    if (context.isSecure()) {
+      ProviderMain.verification.verifyRequester(context, token, signature);
+    }
+    Set<Integer> nodeIDs = parseNodes(nodes);
+    log.debug("Requesting humidity for " + nodeIDs.size() + " nodes");
+
+    Map<Integer, String> readings = new LinkedHashMap<>();
+    for (Integer nodeID : nodeIDs) {
+      readings.put(nodeID, HumidityFeed.get(nodeID));
+    }
+    return readings;
+  }
+
+  /*
+    Server-sent event stream of the humidity of the given nodes, so consumers do not have to poll the endpoint above.
+    The current values are sent right after subscribing, then only the changed ones, as "humidity" events with a JSON
+    HumidityReading payload. The token is verified once, when the stream is opened.
+    The nodes are given the same way as for the bulk endpoint.
+    Example URL: http://<server_address>:<server_port>/values/stream?node=24&node=25
+   */
+  @GET
+  @Path("stream")
+  @Produces(MediaType.SERVER_SENT_EVENTS)
+  public void stream(@QueryParam("node") List<String> nodes, @Context SecurityContext context, @QueryParam("token") String token,
+                     @QueryParam("signature") String signature, @Context SseEventSink sink, @Context Sse sse) {
+    if (context.isSecure()) {
+      ProviderMain.verification.verifyRequester(context, token, signature);
+    }
+    Set<Integer> nodeIDs = parseNodes(nodes);
+    log.debug("Subscribing to the humidity of nodes " + nodeIDs);
+    HumidityFeed.subscribe(nodeIDs, sink, sse);
+  }
+
+  //Parses the node query parameters ("24" or "1-300") into an ordered set of node IDs
+  private static Set<Integer> parseNodes(List<String> nodes) {
+    if (nodes.isEmpty()) {
+      throw new BadPayloadException("At least one node has to be given with the node query parameter.", 400);
+    }
+    Set<Integer> nodeIDs = new TreeSet<>();
+    for (String node : nodes) {
+      try {
+        int separator = node.indexOf('-', 1);
+        int first = Integer.parseInt(separator < 0 ? node.trim() : node.substring(0, separator).trim());
+        int last = separator < 0 ? first : Integer.parseInt(node.substring(separator + 1).trim());
+        if (last < first || (long) last - first >= MAX_NODES) {
+          throw new BadPayloadException("Invalid node range: " + node, 400);
+        }
+        for (int nodeID = first; nodeID <= last && nodeIDs.size() <= MAX_NODES; nodeID++) {
+          nodeIDs.add(nodeID);
+        }
+      } catch (NumberFormatException e) {
+        throw new BadPayloadException("Invalid node ID: " + node, 400);
+      }
+      if (nodeIDs.size() > MAX_NODES) {
+        throw new BadPayloadException("At most " + MAX_NODES + " nodes can be requested at once.", 400);
+      }
     }
-    System.out.println("Requesting humidity for node " + nodeID);
-    return "40%";
+    return nodeIDs;
   }
 }
@@ -10,9 +10,11 @@
 package eu.arrowhead.client.provider;
 
 import eu.arrowhead.client.common.ArrowheadClientMain;
+import eu.arrowhead.client.common.RequestVerification;
 import eu.arrowhead.client.common.Utility;
 import eu.arrowhead.client.common.exception.ArrowheadException;
 import eu.arrowhead.client.common.exception.ExceptionType;
+import eu.arrowhead.client.common.log.Logger;
 import eu.arrowhead.client.common.misc.ClientType;
 import eu.arrowhead.client.common.misc.SecurityUtils;
 import eu.arrowhead.client.common.model.ArrowheadService;
@@ -36,6 +38,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.ServiceConfigurationError;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import javax.ws.rs.core.UriBuilder;
 
 /* This version of the ProviderMain class has some extra functionalities, that are not mandatory to have:
@@ -46,8 +52,9 @@ import javax.ws.rs.core.UriBuilder;
  */
 public class ProviderMain extends ArrowheadClientMain {
 
-  static PublicKey authorizationKey;
-  static PrivateKey privateKey;
+  private static final Logger log = Logger.getLogger(ProviderMain.class);
+
+  static RequestVerification verification;
 
   private static boolean NEED_AUTH;
   private static boolean NEED_ORCH;
@@ -98,6 +105,7 @@ public class ProviderMain extends ArrowheadClientMain {
     if (NEED_ORCH) {
       registerToStore();
     }
+    startHumiditySimulation(props.getIntProperty("humidity_change_interval", 0));
 
     listenForInput();
   }
@@ -110,10 +118,11 @@ public class ProviderMain extends ArrowheadClientMain {
     String keystorePath = props.getProperty("keystore");
     String keystorePass = props.getProperty("keystorepass");
     KeyStore keyStore = SecurityUtils.loadKeyStore(keystorePath, keystorePass);
-    privateKey = SecurityUtils.getPrivateKey(keyStore, keystorePass);
+    PrivateKey privateKey = SecurityUtils.getPrivateKey(keyStore, keystorePass);
 
     //Load the Authorization Core System public key
     String authPublicKeyPath = props.getProperty("authorization_public_key");
+    PublicKey authorizationKey;
     //Supporting the old format used previously: crt file containing the full certificate
     if (authPublicKeyPath.endsWith("crt")) {
       KeyStore authKeyStore = SecurityUtils.createKeyStoreFromCert(authPublicKeyPath);
@@ -123,7 +132,8 @@ public class ProviderMain extends ArrowheadClientMain {
       authorizationKey = SecurityUtils.getPublicKey(authPublicKeyPath, true);
     }
 
-    System.out.println("Authorization System PublicKey Base64: " + Base64.getEncoder().encodeToString(authorizationKey.getEncoded()));
+    log.info("Authorization System PublicKey Base64: " + Base64.getEncoder().encodeToString(authorizationKey.getEncoded()));
+    verification = new RequestVerification(authorizationKey, privateKey, props.getIntProperty("token_cache_size", 1000));
   }
 
   @Override
@@ -132,10 +142,35 @@ public class ProviderMain extends ArrowheadClientMain {
     if (server != null) {
       server.shutdownNow();
     }
-    System.out.println("Provider Server stopped");
+    if (verification != null) {
+      log.info("Token verification cache: " + verification.getHits() + " hits, " + verification.getMisses() + " misses");
+    }
+    log.info("Provider Server stopped");
+    Logger.flush(2000);
     System.exit(0);
   }
 
+  //Changes the humidity of the subscribed nodes by a random step periodically, so the stream subscribers receive updates
+  private static void startHumiditySimulation(int intervalSeconds) {
+    if (intervalSeconds <= 0) {
+      return;
+    }
+    ScheduledExecutorService simulator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "humidity-simulator");
+      thread.setDaemon(true);
+      return thread;
+    });
+    simulator.scheduleAtFixedRate(() -> {
+      for (Integer nodeID : HumidityFeed.nodes()) {
+        if (ThreadLocalRandom.current().nextBoolean()) {
+          int humidity = Integer.parseInt(HumidityFeed.get(nodeID).replace("%", ""));
+          humidity = Math.max(0, Math.min(100, humidity + ThreadLocalRandom.current().nextInt(-2, 3)));
+          HumidityFeed.update(nodeID, humidity + "%");
+        }
+      }
+    }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+  }
+
   private void loadAndCompilePayloads(boolean fromFile) {
     if (fromFile) {
       String srPath = props.getProperty("sr_entry");
@@ -201,9 +236,9 @@ public class ProviderMain extends ArrowheadClientMain {
         storeEntry = Collections.singletonList(new OrchestrationStore(service, consumer, provider, 0, false));
       }
     }
-    System.out.println("Service Registry Entry: " + Utility.toPrettyJson(null, srEntry));
-    System.out.println("IntraCloud Auth Entry: " + Utility.toPrettyJson(null, authEntry));
-    System.out.println("Orchestration Store Entry: " + Utility.toPrettyJson(null, storeEntry));
+    log.debug(() -> "Service Registry Entry: " + Utility.toPrettyJson(null, srEntry));
+    log.debug(() -> "IntraCloud Auth Entry: " + Utility.toPrettyJson(null, authEntry));
+    log.debug(() -> "Orchestration Store Entry: " + Utility.toPrettyJson(null, storeEntry));
   }
 
   private static void registerToServiceRegistry() {
@@ -213,20 +248,20 @@ public class ProviderMain extends ArrowheadClientMain {
       Utility.sendRequest(registerUri, "POST", srEntry);
     } catch (ArrowheadException e) {
       if (e.getExceptionType() == ExceptionType.DUPLICATE_ENTRY) {
-        System.out.println("Received DuplicateEntryException from SR, sending delete request and then registering again.");
+        log.info("Received DuplicateEntryException from SR, sending delete request and then registering again.");
         unregisterFromServiceRegistry();
         Utility.sendRequest(registerUri, "POST", srEntry);
       } else {
         throw e;
       }
     }
-    System.out.println("Registering service is successful!");
+    log.info("Registering service is successful!");
   }
 
   private static void unregisterFromServiceRegistry() {
     String removeUri = UriBuilder.fromPath(SR_BASE_URI).path("remove").toString();
     Utility.sendRequest(removeUri, "PUT", srEntry);
-    System.out.println("Removing service is successful!");
+    log.info("Removing service is successful!");
   }
 
   private void registerToAuthorization() {
@@ -235,10 +270,9 @@ public class ProviderMain extends ArrowheadClientMain {
     String authUri = Utility.getUri(authAddress, authPort, "authorization/mgmt/intracloud", isSecure, false);
     try {
       Utility.sendRequest(authUri, "POST", authEntry);
-      System.out.println("Authorization registration is successful!");
+      log.info("Authorization registration is successful!");
     } catch (ArrowheadException e) {
-      e.printStackTrace();
-      System.out.println("Authorization registration failed!");
+      log.error("Authorization registration failed!", e);
     }
 
   }
@@ -249,10 +283,9 @@ public class ProviderMain extends ArrowheadClientMain {
     String orchUri = Utility.getUri(orchAddress, orchPort, "orchestrator/mgmt/store", false, false);
     try {
       Utility.sendRequest(orchUri, "POST", storeEntry);
-      System.out.println("Store registration is successful!");
+      log.info("Store registration is successful!");
     } catch (ArrowheadException e) {
-      e.printStackTrace();
-      System.out.println("Store registration failed!");
+      log.error("Store registration failed!", e);
     }
   }
 
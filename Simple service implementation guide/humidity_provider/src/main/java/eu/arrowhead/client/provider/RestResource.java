@@ -1,11 +1,10 @@
 package eu.arrowhead.client.provider;
 
+import eu.arrowhead.client.common.CarRepository;
+import eu.arrowhead.client.common.Utility;
 import eu.arrowhead.client.common.exception.DataNotFoundException;
 import eu.arrowhead.client.common.model.Car;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -30,9 +29,8 @@ import javax.ws.rs.core.Response.Status;
 @Produces(MediaType.APPLICATION_JSON)
 public class RestResource {
 
-  //In-memory mocked database
-  private static Integer idCounter = 0;
-  private static final ConcurrentHashMap<Integer, Car> cars = new ConcurrentHashMap<>();
+  //In-memory mocked database (thread-safe, with indexes on the brand and color of the cars), saved to the disk if car_store_dir is set
+  private static final CarRepository cars = CarRepository.fromConfig(Utility.getProp());
 
 
   @GET
@@ -64,19 +62,8 @@ public class RestResource {
   @GET
   @Path("cars")
   public Response getCars(@QueryParam("brand") String brand, @QueryParam("color") String color) {
-    //Get all the cars in a list
-    List<Car> returnedCars = new ArrayList<>();
-    for (Entry<Integer, Car> mapEntry : cars.entrySet()) {
-      returnedCars.add(mapEntry.getValue());
-    }
-
-    //Filter the list based on the specified brand and color
-    if (brand != null) {
-      returnedCars.removeIf(car -> !brand.equals(car.getBrand()));
-    }
-    if (color != null) {
-      returnedCars.removeIf(car -> !color.equals(car.getColor()));
-    }
+    //Get the cars matching the specified brand and color (null parameters do not filter)
+    List<Car> returnedCars = cars.find(brand, color);
 
     //Response contains the status code, and the response entity
     return Response.status(Status.OK).entity(returnedCars).build();
@@ -86,7 +73,7 @@ public class RestResource {
   @GET
   @Path("raw")
   public Response getAll() {
-    return Response.status(Status.OK).entity(cars).build();
+    return Response.status(Status.OK).entity(cars.asMap()).build();
   }
 
   /*
@@ -96,10 +83,8 @@ public class RestResource {
   @POST
   @Path("cars")
   public Response createCar(Car car) {
-    //Save the car instance to the database
-    cars.put(idCounter, car);
-    //Increment the ID for the next call of this method
-    idCounter++;
+    //Save the car instance to the database, which assigns the next free ID to it
+    cars.add(car);
     return Response.status(Status.CREATED).entity(car).build();
   }
 
@@ -111,13 +96,10 @@ public class RestResource {
   @PUT
   @Path("cars/{id}")
   public Response updateCar(@PathParam("id") Integer id, Car updatedCar) {
-    Car carFromTheDatabase = cars.get(id);
-    //Throw an exception if the car with the specified ID does not exist
-    if (carFromTheDatabase != null) {
+    //Update the car, or throw an exception if the car with the specified ID does not exist
+    if (!cars.replace(id, updatedCar)) {
       throw new DataNotFoundException("Car with id " + id + " not found in the database!");
     }
-    //Update the car
-    cars.put(id, updatedCar);
 
     //Return a response with Accepted status code
     return Response.status(Status.ACCEPTED).entity(updatedCar).build();
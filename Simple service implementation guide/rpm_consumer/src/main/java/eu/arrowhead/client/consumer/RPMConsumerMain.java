@@ -12,6 +12,7 @@ package eu.arrowhead.client.consumer;
 import eu.arrowhead.client.common.CertificateBootstrapper;
 import eu.arrowhead.client.common.Utility;
 import eu.arrowhead.client.common.exception.ArrowheadException;
+import eu.arrowhead.client.common.log.Logger;
 import eu.arrowhead.client.common.misc.ClientType;
 import eu.arrowhead.client.common.misc.TypeSafeProperties;
 import eu.arrowhead.client.common.model.ArrowheadService;
@@ -21,9 +22,11 @@ import eu.arrowhead.client.common.model.RPMInput;
 import eu.arrowhead.client.common.model.RPMOutput;
 import eu.arrowhead.client.common.model.ServiceRequestForm;
 import java.awt.Font;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.SSLContext;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -34,6 +37,8 @@ import org.glassfish.grizzly.ssl.SSLContextConfigurator.GenericStoreException;
 
 public class RPMConsumerMain {
 
+  private static final Logger log = Logger.getLogger(RPMConsumerMain.class);
+
   private static boolean isSecure;
   private static String orchestratorUrl;
   private static TypeSafeProperties props = Utility.getProp();
@@ -41,7 +46,7 @@ public class RPMConsumerMain {
 
   private RPMConsumerMain(String[] args) {
     //Prints the working directory for extra information. Working directory should always contain a config folder with the app.conf file!
-    System.out.println("Working directory: " + System.getProperty("user.dir"));
+    log.info("Working directory: " + System.getProperty("user.dir"));
 
     //Compile the URL for the orchestration request.
     getOrchestratorUrl(args);
@@ -56,11 +61,12 @@ public class RPMConsumerMain {
     String providerUrl = sendOrchestrationRequest(srf);
 
     //Connect to the provider, consuming its service - THIS METHOD SHOULD BE MODIFIED ACCORDING TO YOUR USE CASE
-    int rpm = consumeService(providerUrl);
+    //(with the -loop argument a control loop sends a stream of setpoints instead of a single one)
+    int rpm = Arrays.asList(args).contains("-loop") ? runControlLoop(providerUrl) : consumeService(providerUrl);
 
     //Printing out the elapsed time during the orchestration and service consumption
     long endTime = System.currentTimeMillis();
-    System.out.println("Orchestration and Service consumption response time: " + Long.toString(endTime - startTime));
+    log.info("Orchestration and Service consumption response time: " + Long.toString(endTime - startTime));
     //Show a message dialog with the response from the service provider
     JLabel label = new JLabel("The motor RPM is set to: " + rpm);
     label.setFont(new Font("Arial", Font.BOLD, 18));
@@ -107,7 +113,7 @@ public class RPMConsumerMain {
 
     //Build the complete service request form from the pieces, and return it
     ServiceRequestForm srf = new ServiceRequestForm.Builder(consumer).requestedService(service).orchestrationFlags(orchestrationFlags).build();
-    System.out.println("Service Request payload: " + Utility.toPrettyJson(null, srf));
+    log.debug(() -> "Service Request payload: " + Utility.toPrettyJson(null, srf));
     return srf;
   }
 
@@ -127,23 +133,48 @@ public class RPMConsumerMain {
      */
     RPMOutput readout = new RPMOutput();
     try {
-      readout = postResponse.readEntity(RPMOutput.class);
-      System.out.println("Provider Response payload: " + Utility.toPrettyJson(null, readout));
+      final RPMOutput response = postResponse.readEntity(RPMOutput.class);
+      log.debug(() -> "Provider Response payload: " + Utility.toPrettyJson(null, response));
+      readout = response;
     } catch (RuntimeException e) {
-      e.printStackTrace();
-      System.out.println("Provider did not send the RPM readout in the expected format.");
+      log.error("Provider did not send the RPM readout in the expected format.", e);
     }
     return readout.getCurrentRPM();
   }
 
 
+  /*
+    Sends a new setpoint every 10 ms (100 Hz) for 10 seconds. The setpoints go through the pipelining client, which sends them
+    in batches without waiting for the previous answers, so the loop does not have to pay a round trip per setpoint.
+   */
+  private int runControlLoop(String providerUrl) {
+    int inFlight = props.getIntProperty("rpm_pipeline_in_flight", 4);
+    int batchSize = props.getIntProperty("rpm_pipeline_batch_size", 1);
+    try (RPMPipeline pipeline = new RPMPipeline(providerUrl, inFlight, batchSize)) {
+      long next = System.nanoTime();
+      for (int i = 0; i < 1000; i++) {
+        //A slowly changing speed profile between 8000 and 12000 RPM
+        pipeline.submit(10000 + (int) Math.round(2000 * Math.sin(i / 100.0)));
+        next += TimeUnit.MILLISECONDS.toNanos(10);
+        TimeUnit.NANOSECONDS.sleep(next - System.nanoTime());
+      }
+      pipeline.flush();
+      log.info("Setpoints sent: " + pipeline.getSent() + ", coalesced: " + pipeline.getCoalesced() + ", failed: " + pipeline.getFailed());
+      Integer currentRPM = pipeline.getCurrentRPM();
+      return currentRPM == null ? 0 : currentRPM;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ArrowheadException("Control loop interrupted", e);
+    }
+  }
+
   // Sends the orchestration request to the Orchestrator, and compiles the URL for the first provider received from the OrchestrationResponse
   private String sendOrchestrationRequest(ServiceRequestForm srf) {
     //Sending a POST request to the orchestrator (URL, method, payload)
     Response postResponse = Utility.sendRequest(orchestratorUrl, "POST", srf);
     //Parsing the orchestrator response
     OrchestrationResponse orchResponse = postResponse.readEntity(OrchestrationResponse.class);
-    System.out.println("Orchestration Response payload: " + Utility.toPrettyJson(null, orchResponse));
+    log.debug(() -> "Orchestration Response payload: " + Utility.toPrettyJson(null, orchResponse));
     if (orchResponse.getResponse().isEmpty()) {
       throw new ArrowheadException("Orchestrator returned with 0 Orchestration Forms!");
     }
@@ -164,10 +195,10 @@ public class RPMConsumerMain {
       ub.queryParam("token", orchResponse.getResponse().get(0).getAuthorizationToken());
       ub.queryParam("signature", orchResponse.getResponse().get(0).getSignature());
     }
-    System.out.println("Received provider system URL: " + ub.toString());
+    log.info("Received provider system URL: " + ub.toString());
     //Adding the use-case specific information to the URL
     ub.path("rpm");
-    System.out.println("Full URL compiled: " + ub.toString());
+    log.info("Full URL compiled: " + ub.toString());
     return ub.toString();
   }
 
@@ -191,8 +222,7 @@ public class RPMConsumerMain {
           SSLContext sslContext = sslCon.createSSLContext(true);
           Utility.setSSLContext(sslContext);
         } catch (GenericStoreException e) {
-          System.out.println("Provided SSLContext is not valid, moving to certificate bootstrapping.");
-          e.printStackTrace();
+          log.warn("Provided SSLContext is not valid, moving to certificate bootstrapping.", e);
           sslCon = CertificateBootstrapper.bootstrap(ClientType.CONSUMER, consumerSystemName);
           props = Utility.getProp();
           Utility.setSSLContext(sslCon.createSSLContext(true));
@@ -0,0 +1,149 @@
+/*
+ *  Copyright (c) 2018 AITIA International Inc.
+ *
+ *  This work is part of the Productive 4.0 innovation project, which receives grants from the
+ *  European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ *  (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ *  national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.client.consumer;
+
+import eu.arrowhead.client.common.Utility;
+import eu.arrowhead.client.common.log.Logger;
+import eu.arrowhead.client.common.model.RPMInput;
+import eu.arrowhead.client.common.model.RPMOutput;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+
+/* Sends the setpoints of a control loop to the batch endpoint of the RPM provider, without waiting for the answer of each one.
+   At most maxInFlight requests are sent at the same time. A newer setpoint supersedes the older ones, so of the setpoints
+   produced while every request is busy, only the newest maxBatchSize are kept and sent together as the next batch, the older
+   ones are dropped (coalesced). With a maxBatchSize of 1 (the default of the consumer), only the newest setpoint is sent.
+   Every setpoint gets an increasing sequence number (microseconds since the epoch), so the provider can skip the setpoints of
+   a batch that arrives after a newer one. */
+public class RPMPipeline implements AutoCloseable {
+
+  private static final Logger log = Logger.getLogger(RPMPipeline.class);
+
+  private static final GenericType<List<RPMOutput>> OUTPUT_LIST = new GenericType<List<RPMOutput>>() {
+  };
+
+  private final String batchUrl;
+  private final int maxInFlight;
+  private final int maxBatchSize;
+  private final ExecutorService senders;
+  private final Deque<RPMInput> pending = new ArrayDeque<>();
+
+  //Guarded by this
+  private int inFlight;
+  private long lastSequence;
+  private long sent;
+  private long coalesced;
+  private long failed;
+  private RPMOutput lastOutput;
+
+  /**
+   * @param providerUrl URL of the single setpoint endpoint (ending with "rpm"), as compiled from the orchestration response
+   * @param maxBatchSize number of the newest waiting setpoints sent in a batch, 1 only sends the newest one
+   */
+  public RPMPipeline(String providerUrl, int maxInFlight, int maxBatchSize) {
+    this.batchUrl = UriBuilder.fromUri(providerUrl).path("batch").toString();
+    this.maxInFlight = Math.max(1, maxInFlight);
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    final AtomicInteger counter = new AtomicInteger();
+    this.senders = Executors.newFixedThreadPool(this.maxInFlight, runnable -> {
+      Thread thread = new Thread(runnable, "rpm-pipeline-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  //Queues a new setpoint, it is sent right away if there is a free request slot
+  public synchronized void submit(int rpm) {
+    lastSequence = Math.max(lastSequence + 1, TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+    pending.addLast(new RPMInput(lastSequence, rpm));
+    if (pending.size() > maxBatchSize) {
+      pending.removeFirst();
+      coalesced++;
+    }
+    dispatch();
+  }
+
+  //Waits until every submitted setpoint was sent and answered
+  public synchronized void flush() throws InterruptedException {
+    while (inFlight > 0 || !pending.isEmpty()) {
+      wait();
+    }
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    flush();
+    senders.shutdown();
+  }
+
+  //The RPM the provider reported for the newest setpoint answered so far (null before the first answer)
+  public synchronized Integer getCurrentRPM() {
+    return lastOutput == null ? null : lastOutput.getCurrentRPM();
+  }
+
+  //Number of setpoints sent to the provider
+  public synchronized long getSent() {
+    return sent;
+  }
+
+  //Number of setpoints dropped because newer ones superseded them before they could be sent
+  public synchronized long getCoalesced() {
+    return coalesced;
+  }
+
+  //Number of setpoints in failed requests
+  public synchronized long getFailed() {
+    return failed;
+  }
+
+  private synchronized void dispatch() {
+    while (inFlight < maxInFlight && !pending.isEmpty()) {
+      final List<RPMInput> batch = new ArrayList<>(pending);
+      pending.clear();
+      inFlight++;
+      sent += batch.size();
+      senders.execute(() -> send(batch));
+    }
+  }
+
+  private void send(List<RPMInput> batch) {
+    List<RPMOutput> outputs = null;
+    try {
+      Response response = Utility.sendRequest(batchUrl, "POST", batch);
+      outputs = response.readEntity(OUTPUT_LIST);
+    } catch (RuntimeException e) {
+      log.warn("Sending " + batch.size() + " setpoints failed: " + e.getMessage());
+    }
+
+    synchronized (this) {
+      if (outputs == null) {
+        failed += batch.size();
+      } else {
+        for (RPMOutput output : outputs) {
+          if (lastOutput == null || output.getSequence() > lastOutput.getSequence()) {
+            lastOutput = output;
+          }
+        }
+      }
+      inFlight--;
+      dispatch();
+      notifyAll();
+    }
+  }
+}
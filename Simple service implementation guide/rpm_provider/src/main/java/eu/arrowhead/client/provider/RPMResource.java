@@ -1,8 +1,13 @@
 package eu.arrowhead.client.provider;
 
+import eu.arrowhead.client.common.exception.BadPayloadException;
+import eu.arrowhead.client.common.log.Logger;
 import eu.arrowhead.client.common.model.RPMInput;
 import eu.arrowhead.client.common.model.RPMOutput;
+import java.util.ArrayList;
+import java.util.List;
 import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -16,6 +21,12 @@ import javax.ws.rs.core.SecurityContext;
 @Path("controller")
 public class RPMResource {
 
+  private static final Logger log = Logger.getLogger(RPMResource.class);
+
+  //Sequence number of the last setpoint applied by the batch endpoint, older setpoints arriving late are not applied
+  private static long lastSequence = Long.MIN_VALUE;
+  private static int currentRPM = 10000;
+
   @POST
   @Path("rpm")
   @Consumes(MediaType.APPLICATION_JSON)
@@ -23,11 +34,55 @@ public class RPMResource {
   public Response getRPM(@Valid RPMInput input, @Context SecurityContext context, @QueryParam("token") String token,
                          @QueryParam("signature") String signature) {
     if (context.isSecure()) {
-      RequestVerification.verifyRequester(context, token, signature);
+      RPMProviderMain.verification.verifyRequester(context, token, signature);
     }
 
-    System.out.println(input.toString());
+    log.debug(input::toString);
 
     return Response.status(200).entity(new RPMOutput(10000)).build();
   }
+
+  /*
+    Applies a time-ordered list of setpoints with one request (and one token verification), so a control loop does not need
+    a round trip per setpoint. The response has one output per input, with the same sequence number. Setpoints that are
+    older than the last one applied (e.g. a batch that was overtaken by a later one sent on another connection) are skipped,
+    their output holds the RPM the motor is actually set to.
+   */
+  @POST
+  @Path("rpm/batch")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response getRPMBatch(@Valid @NotNull List<RPMInput> inputs, @Context SecurityContext context,
+                              @QueryParam("token") String token, @QueryParam("signature") String signature) {
+    if (context.isSecure()) {
+      RPMProviderMain.verification.verifyRequester(context, token, signature);
+    }
+
+    Long previous = null;
+    for (RPMInput input : inputs) {
+      if (input == null || input.getSequence() == null || input.getRPM() == null) {
+        throw new BadPayloadException("Every setpoint of a batch needs a sequence number and an RPM value.", 400);
+      }
+      if (previous != null && input.getSequence() <= previous) {
+        throw new BadPayloadException("The setpoints of a batch have to be ordered by their sequence numbers.", 400);
+      }
+      previous = input.getSequence();
+    }
+
+    List<RPMOutput> outputs = new ArrayList<>(inputs.size());
+    int rpm;
+    synchronized (RPMResource.class) {
+      for (RPMInput input : inputs) {
+        if (input.getSequence() > lastSequence) {
+          lastSequence = input.getSequence();
+          currentRPM = input.getRPM();
+        }
+        outputs.add(new RPMOutput(input.getSequence(), currentRPM));
+      }
+      rpm = currentRPM;
+    }
+    log.debug("Received " + inputs.size() + " setpoints, current RPM: " + rpm);
+
+    return Response.status(200).entity(outputs).build();
+  }
 }